@@ -0,0 +1,29 @@
+// Writes a .br and a .gz next to every compressible file of the build, once,
+// so the backend can send them without compressing on each request.
+const fs = require('fs');
+const path = require('path');
+const zlib = require('zlib');
+
+const buildDir = path.join(__dirname, '..', 'build');
+const compressible = /\.(js|css|html|json|svg|txt|map|ico)$/;
+// smaller files do not gain enough to be worth a second request header
+const minSize = 1024;
+
+const walk = (dir) =>
+    fs.readdirSync(dir, { withFileTypes: true }).flatMap(entry => {
+        const file = path.join(dir, entry.name);
+        return entry.isDirectory() ? walk(file) : [file];
+    });
+
+walk(buildDir)
+    .filter(file => compressible.test(file))
+    .forEach(file => {
+        const content = fs.readFileSync(file);
+        if (content.length < minSize) {
+            return;
+        }
+        fs.writeFileSync(`${file}.br`, zlib.brotliCompressSync(content, {
+            params: { [zlib.constants.BROTLI_PARAM_QUALITY]: zlib.constants.BROTLI_MAX_QUALITY }
+        }));
+        fs.writeFileSync(`${file}.gz`, zlib.gzipSync(content, { level: zlib.constants.Z_BEST_COMPRESSION }));
+    });
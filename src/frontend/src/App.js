@@ -1,5 +1,5 @@
-import { useState, useEffect } from "react";
-import { getAllStudents, deleteStudent } from "./client";
+import { useState, useEffect, useRef } from "react";
+import { getStudents, searchStudents, deleteStudent, subscribeToStudentChanges } from "./client";
 import { Routes, Route, useNavigate, useLocation } from 'react-router-dom';
 import {
     Layout,
@@ -13,7 +13,8 @@ import {
     Avatar,
     Popconfirm,
     Image,
-    Divider
+    Divider,
+    Input
 } from "antd";
 import {
     DesktopOutlined,
@@ -69,7 +70,7 @@ const ActionButtons = (student, callback, showDrawer, setShowDrawer, setSelected
             err.response.json().then(res => {
                 errorNotification(
                     "There was an issue",
-                    `${res.message} [${res.status}] [${res.error}]`
+                    `${res.detail || res.title} [${res.status}] [${res.title}]`
                 );
             });
         });
@@ -144,6 +145,37 @@ const antIcon = <LoadingOutlined style={{ fontSize: 24 }} spin />;
 
 const infoPath = 'about-project';
 
+// same matching as the search endpoint: prefix, or substring from 3 characters on
+const matchesSearch = (student, name) => {
+    if (!name) {
+        return true;
+    }
+    const studentName = student.name.toLowerCase();
+    const searched = name.toLowerCase();
+    return searched.length >= 3 ? studentName.includes(searched) : studentName.startsWith(searched);
+};
+
+// applies a change pushed by the server to the displayed students
+const applyChange = (students, type, delta, searchName, allLoaded) => {
+    switch (type) {
+        case "created":
+            // already there when the list was fetched after the change; the newest
+            // students come last, with a page not loaded yet otherwise
+            return allLoaded && matchesSearch(delta.student, searchName)
+                && !students.some(student => student.id === delta.studentId)
+                ? students.concat(delta.student)
+                : students;
+        case "updated":
+            return students.map(student => student.id !== delta.studentId
+                ? student
+                : { ...student, ...(delta.student || delta.patch) });
+        case "deleted":
+            return students.filter(student => student.id !== delta.studentId);
+        default:
+            return students;
+    }
+};
+
 function App() {
     const [students, setStudents] = useState([]);
     const [collapsed, setCollapsed] = useState(false);
@@ -151,14 +183,31 @@ function App() {
     const [showDrawer, setShowDrawer] = useState(false);
     const [selectedStudent, setSelectedStudent] = useState(null);
     const [activeKey, setActiveKey] = useState(null);
+    const [searchName, setSearchName] = useState("");
+    // the url of the next page of students, null once all are loaded
+    const [nextPage, setNextPage] = useState(null);
+    const [loadingMore, setLoadingMore] = useState(false);
 
     const navigate = useNavigate();
     const location = useLocation();
 
+    // read by the change listener, which is only registered once
+    const searchNameRef = useRef(searchName);
+    searchNameRef.current = searchName;
+    const nextPageRef = useRef(nextPage);
+    nextPageRef.current = nextPage;
+
     useEffect(() => {
         fetchStudents();
     }, []); // zero dependencies
 
+    // live updates instead of fetching the students again
+    useEffect(() => subscribeToStudentChanges(
+        (type, delta) => setStudents(students =>
+            applyChange(students, type, delta, searchNameRef.current, nextPageRef.current === null)),
+        () => fetchStudents(searchNameRef.current)
+    ), []);
+
     useEffect(() => {
         setActiveKey(location.pathname);
     }, [location.pathname]);
@@ -168,22 +217,55 @@ function App() {
         navigate(path);
     };
 
-    const fetchStudents = () =>
-        getAllStudents()
-            .then(res => res.json())
-            .then(data => {
-                setStudents(data);
-            }).catch(err => {
-            err.response.json().then(res => {
-                errorNotification(
-                    "There was an issue",
-                    `${res.message} [StatusCode:${res.status}] [${res.error}]`
-                );
-            });
-        }).finally(() => setFetching(false));
+    const showError = err => {
+        err.response.json().then(res => {
+            errorNotification(
+                "There was an issue",
+                `${res.detail || res.title} [StatusCode:${res.status}] [${res.title}]`
+            );
+        });
+    };
+
+    // the first page of the students matching the current search, of all of them without one
+    const fetchStudents = (name = searchName) =>
+        (name ? searchStudents(name) : getStudents())
+            .then(page => {
+                setStudents(page.students);
+                setNextPage(page.next);
+            }).catch(showError)
+            .finally(() => setFetching(false));
+
+    const loadMoreStudents = () => {
+        setLoadingMore(true);
+        getStudents(nextPage)
+            .then(page => {
+                // a student created meanwhile may already be shown
+                setStudents(students => students.concat(page.students.filter(
+                    student => !students.some(shown => shown.id === student.id))));
+                setNextPage(page.next);
+            }).catch(showError)
+            .finally(() => setLoadingMore(false));
+    };
+
+    const onSearch = value => {
+        const name = value.trim();
+        setSearchName(name);
+        setFetching(true);
+        fetchStudents(name);
+    };
 
     const renderStudents = () => {
         const columnsConfig = columns(fetchStudents, showDrawer, setShowDrawer, setSelectedStudent);
+        const searchBox = (
+            <Input.Search
+                placeholder="Search by name"
+                allowClear
+                defaultValue={searchName}
+                onSearch={onSearch}
+                style={{ width: 250, marginLeft: 16 }}
+                size="small"
+            />
+        );
         if (fetching) {
             return <Spin indicator={antIcon} />;
         }
@@ -199,6 +281,7 @@ function App() {
                     >
                         Add New Student
                     </Button>
+                    {searchBox}
                     <StudentDrawerForm
                         showDrawer={showDrawer}
                         setShowDrawer={setShowDrawer}
@@ -223,7 +306,7 @@ function App() {
                     bordered
                     title={() => (
                         <>
-                            <Tag>Number of students</Tag>
+                            <Tag>{nextPage ? "Students loaded" : "Number of students"}</Tag>
                             <Badge count={students.length} className="site-badge-count-4" />
                             <br /><br />
                             <Button
@@ -235,11 +318,17 @@ function App() {
                             >
                                 Add New Student
                             </Button>
+                            {searchBox}
                         </>
                     )}
                     pagination={{ pageSize: 50 }}
                     scroll={{ y: 450 }}
                     rowKey={student => student.id}
+                    footer={nextPage ? () => (
+                        <Button onClick={loadMoreStudents} loading={loadingMore} size="small">
+                            Load more students
+                        </Button>
+                    ) : undefined}
                 />
             </>
         );
@@ -53,7 +53,7 @@ function StudentDrawerForm({showDrawer, setShowDrawer, fetchStudents, selectedSt
             err.response.json().then(res => {
                 errorNotification(
                     "There was an issue",
-                    `${res.message} [${res.status}] [${res.error}]`
+                    `${res.detail || res.title} [${res.status}] [${res.title}]`
                 );
             });
         }).finally(() => {
@@ -75,7 +75,7 @@ function StudentDrawerForm({showDrawer, setShowDrawer, fetchStudents, selectedSt
             err.response.json().then(res => {
                 errorNotification(
                     "There was an issue",
-                    `${res.message} [${res.status}] [${res.error}]`
+                    `${res.detail || res.title} [${res.status}] [${res.title}]`
                 )
             });
         }).finally(() => {
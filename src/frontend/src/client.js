@@ -9,9 +9,30 @@ const checkStatus = response => {
     error.response = response;
     return Promise.reject(error);
 }
-export const getAllStudents = () =>
-    fetch("api/v1/students")
-        .then(checkStatus);
+// the next page of a paginated listing is advertised in the Link header
+const nextPageUrl = response => {
+    const link = response.headers.get("Link");
+    const next = link && link.match(/<([^>]+)>;\s*rel="next"/);
+    return next ? next[1] : null;
+}
+
+// one keyset page of the student listing, resolves with its students and the
+// url of the next page, null on the last one; the next page is only fetched
+// when the user asks for more
+export const getStudents = (url = "api/v1/students?size=100") =>
+    fetch(url)
+        .then(checkStatus)
+        .then(response => response.json().then(students => ({
+            students,
+            next: nextPageUrl(response)
+        })));
+
+// searched in the database: by name prefix, or by substring from 3 characters on
+export const searchStudents = name => {
+    const match = name.length >= 3 ? "contains" : "prefix";
+    return getStudents(
+        `api/v1/students/search?size=100&match=${match}&name=${encodeURIComponent(name)}`);
+}
 
 export const addNewStudent = student =>
     fetch("api/v1/students",{
@@ -40,3 +61,21 @@ export const getInfoAboutProject = (infoPath) =>
     fetch(`api/v1/${infoPath}`)
         .then(checkStatus)
         .then(response => response.url);
+
+// pushes the changes made by everyone, see StudentEventController; the browser
+// reconnects on its own, and onResync is called whenever changes may have been missed
+export const subscribeToStudentChanges = (onChange, onResync) => {
+    const events = new EventSource("api/v1/students/events");
+    ["created", "updated", "deleted"].forEach(type =>
+        events.addEventListener(type, event => onChange(type, JSON.parse(event.data))));
+    events.addEventListener("resync", onResync);
+    // changes may have been missed while disconnected
+    let connected = false;
+    events.addEventListener("open", () => {
+        if (connected) {
+            onResync();
+        }
+        connected = true;
+    });
+    return () => events.close();
+}
@@ -0,0 +1,113 @@
+package com.example.demo.student;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialisation of a list of students in each response format, plain and
+ * gzipped as by the server compression. The bytes are counted, not kept, so
+ * that only the CPU of the encoding is measured; the payload sizes are
+ * printed once per format and size, e.g.
+ * -Djmh.args="StudentFormat -p size=1000000 -p format=PROTOBUF"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class StudentFormatBenchmark {
+
+    public enum Format {
+        JSON, CBOR, SMILE, PROTOBUF
+    }
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    @Param
+    private Format format;
+
+    private List<Student> students;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() throws IOException {
+        students = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            students.add(new Student((long) i, "Student " + i, "student" + i + "@mail.com",
+                    Gender.values()[i % Gender.values().length], 0L));
+        }
+        // the ObjectMapper configuration Spring Boot gives the converters
+        switch (format) {
+            case CBOR:
+                objectMapper = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+                break;
+            case SMILE:
+                objectMapper = Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build();
+                break;
+            default:
+                objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        }
+        System.out.printf("%n%s, %d students: %d bytes, %d bytes gzipped%n",
+                format, size, serialize(), serializeGzipped());
+    }
+
+    @Benchmark
+    public long serialize() throws IOException {
+        ByteCounter counter = new ByteCounter();
+        write(counter);
+        return counter.count;
+    }
+
+    @Benchmark
+    public long serializeGzipped() throws IOException {
+        ByteCounter counter = new ByteCounter();
+        // the buffer size of Tomcat's compression
+        try (GZIPOutputStream gzip = new GZIPOutputStream(counter, 8192)) {
+            write(gzip);
+        }
+        return counter.count;
+    }
+
+    private void write(OutputStream output) throws IOException {
+        if (format == Format.PROTOBUF) {
+            StudentProtobuf.writeList(students, output);
+        } else {
+            objectMapper.writeValue(output, students);
+        }
+    }
+
+    /**
+     * Discards the bytes written, counting them.
+     */
+    private static final class ByteCounter extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void close() {
+            // the Jackson generators close their target, the count stays readable
+        }
+    }
+}
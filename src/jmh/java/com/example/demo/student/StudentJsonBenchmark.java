@@ -0,0 +1,80 @@
+package com.example.demo.student;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (de)serialisation of one student and of a page of students, with
+ * the ObjectMapper configuration Spring Boot gives the controllers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StudentJsonBenchmark {
+
+    private static final TypeReference<List<Student>> STUDENT_LIST = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private Student student;
+    private String studentJson;
+
+    /**
+     * A page of students, only the list benchmarks are run for each size.
+     */
+    @State(Scope.Benchmark)
+    public static class Page {
+
+        // the default and the largest page size of the API
+        @Param({"" + StudentPageRequest.DEFAULT_SIZE, "" + StudentPageRequest.MAX_SIZE})
+        private int size;
+
+        private List<Student> students;
+        private String json;
+
+        @Setup
+        public void setUp(StudentJsonBenchmark benchmark) throws Exception {
+            students = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                students.add(new Student((long) i, "Student " + i, "student" + i + "@mail.com",
+                        Gender.values()[i % Gender.values().length], 0L));
+            }
+            json = benchmark.objectMapper.writeValueAsString(students);
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        student = new Student(1L, "Anna Smith", "anna.smith@mail.com", Gender.FEMALE, 0L);
+        studentJson = objectMapper.writeValueAsString(student);
+    }
+
+    @Benchmark
+    public String serializeStudent() throws Exception {
+        return objectMapper.writeValueAsString(student);
+    }
+
+    @Benchmark
+    public Student deserializeStudent() throws Exception {
+        return objectMapper.readValue(studentJson, Student.class);
+    }
+
+    @Benchmark
+    public byte[] serializeStudents(Page page) throws Exception {
+        return objectMapper.writeValueAsBytes(page.students);
+    }
+
+    @Benchmark
+    public List<Student> deserializeStudents(Page page) throws Exception {
+        return objectMapper.readValue(page.json, STUDENT_LIST);
+    }
+}
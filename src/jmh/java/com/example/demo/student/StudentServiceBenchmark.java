@@ -0,0 +1,92 @@
+package com.example.demo.student;
+
+import com.example.demo.DemoApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * StudentService backed by the application context of the tests, on an
+ * in-memory H2 database seeded with students. The numbers include the
+ * transactions, Hibernate and the read cache, but no network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StudentServiceBenchmark {
+
+    @Param({"10000"})
+    private int students;
+
+    private ConfigurableApplicationContext context;
+    private StudentService studentService;
+    private final AtomicLong created = new AtomicLong();
+    private long someStudentId;
+    private StudentPageRequest firstPage;
+    private StudentPageRequest firstPageByName;
+    private StudentSearchCriteria namePrefix;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(DemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:jmh;DB_CLOSE_DELAY=-1",
+                        "--logging.level.root=WARN");
+        studentService = context.getBean(StudentService.class);
+
+        for (int from = 0; from < students; from += StudentService.MAX_BATCH_SIZE) {
+            List<Student> batch = new ArrayList<>();
+            for (int i = from; i < Math.min(from + StudentService.MAX_BATCH_SIZE, students); i++) {
+                batch.add(new Student("Student " + i, "student" + i + "@mail.com",
+                        Gender.values()[i % Gender.values().length]));
+            }
+            studentService.addStudents(batch);
+        }
+        firstPage = StudentPageRequest.of("id", "asc", null, StudentPageRequest.DEFAULT_SIZE);
+        firstPageByName = StudentPageRequest.of("name", "asc", null, StudentPageRequest.DEFAULT_SIZE);
+        namePrefix = StudentSearchCriteria.of("student 12", "prefix", null, null);
+        someStudentId = studentService.getStudents(firstPage).getContent().get(0).getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Student getStudent() {
+        // served by the read cache after the first call
+        return studentService.getStudent(someStudentId);
+    }
+
+    @Benchmark
+    public StudentPage<Student> getFirstPage() {
+        return studentService.getStudents(firstPage);
+    }
+
+    @Benchmark
+    public StudentPage<Student> getFirstPageByName() {
+        return studentService.getStudents(firstPageByName);
+    }
+
+    @Benchmark
+    public StudentPage<Student> searchByNamePrefix() {
+        return studentService.searchStudents(namePrefix, firstPage);
+    }
+
+    @Benchmark
+    public void addStudent() {
+        // a new email each time, the table grows during the run
+        long i = created.incrementAndGet();
+        studentService.addStudent(new Student("Benchmark " + i, "benchmark" + i + "@mail.com", Gender.OTHER));
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.student;
+
+import com.example.demo.student.exception.BadRequestException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean Validation of a student, the way the controller validates request
+ * bodies, and the BadRequestException built from the binding errors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StudentValidationBenchmark {
+
+    private LocalValidatorFactoryBean validator;
+    private Student validStudent;
+    private Student invalidStudent;
+    private BindingResult invalidStudentErrors;
+
+    @Setup
+    public void setUp() {
+        validator = new LocalValidatorFactoryBean();
+        validator.afterPropertiesSet();
+        validStudent = new Student("Anna Smith", "anna.smith@mail.com", Gender.FEMALE);
+        invalidStudent = new Student(" ", "not an email", null);
+        invalidStudentErrors = validate(invalidStudent);
+    }
+
+    @TearDown
+    public void tearDown() {
+        validator.close();
+    }
+
+    @Benchmark
+    public BindingResult validateValidStudent() {
+        return validate(validStudent);
+    }
+
+    @Benchmark
+    public BindingResult validateInvalidStudent() {
+        return validate(invalidStudent);
+    }
+
+    @Benchmark
+    public BadRequestException badRequestFromBindingResult() {
+        return new BadRequestException(invalidStudentErrors);
+    }
+
+    private BindingResult validate(Student student) {
+        BindingResult bindingResult = new BeanPropertyBindingResult(student, "student");
+        validator.validate(student, bindingResult);
+        return bindingResult;
+    }
+}
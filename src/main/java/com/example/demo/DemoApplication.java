@@ -2,12 +2,30 @@ package com.example.demo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// R2DBC is on the classpath when built with the reactive profile, it is only used
+// by com.example.reactive.ReactiveDemoApplication
+@SpringBootApplication(excludeName = "org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration")
+@EnableScheduling
 public class DemoApplication {
 
+	// startup steps kept for /actuator/startup, enough for the beans of this application
+	static final int STARTUP_STEPS = 4096;
+
 	public static void main(String[] args) {
-		SpringApplication.run(DemoApplication.class, args);
+		SpringApplication application = new SpringApplication(DemoApplication.class);
+		// the time of each startup step (bean creation, Flyway, Hibernate...) for /actuator/startup,
+		// the totals are the application.started.time and application.ready.time metrics
+		application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS));
+		ConfigurableApplicationContext context = application.run(args);
+		// the training run of the image build stops once started, its JVM then dumps
+		// the classes it loaded as the AppCDS archive of the image
+		if (context.getEnvironment().getProperty("student.cds.training", Boolean.class, false)) {
+			System.exit(SpringApplication.exit(context));
+		}
 	}
 
 }
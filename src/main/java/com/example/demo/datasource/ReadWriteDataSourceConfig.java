@@ -0,0 +1,89 @@
+package com.example.demo.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the single data source of spring.datasource by the primary plus
+ * the read replicas, once at least one replica is configured. The
+ * {@code @Transactional(readOnly = true)} methods then read from the replicas.
+ *
+ * Spring Boot only publishes the metrics of the pools it can find, so the
+ * pools created here are bound to the registry here, tagged with
+ * pool=primary, replica-1...
+ */
+@Configuration
+@ConditionalOnProperty(name = "student.datasource.replicas[0].url")
+@EnableConfigurationProperties(ReplicaDataSourceProperties.class)
+public class ReadWriteDataSourceConfig {
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(DataSourceProperties primaryProperties,
+                                               ReplicaDataSourceProperties replicaProperties) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<ReplicaDataSourceProperties.Replica> configured = replicaProperties.getReplicas();
+        for (int i = 0; i < configured.size(); i++) {
+            ReplicaDataSourceProperties.Replica replica = configured.get(i);
+            String name = "replica-" + (i + 1);
+            HikariDataSource pool = primaryProperties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(replica.getUrl())
+                    .username(replica.getUsername() != null
+                            ? replica.getUsername() : primaryProperties.determineUsername())
+                    .password(replica.getPassword() != null
+                            ? replica.getPassword() : primaryProperties.determinePassword())
+                    .build();
+            pool.setPoolName(name);
+            // a statement routed here by mistake fails instead of diverging from the primary
+            pool.setReadOnly(true);
+            replicas.put(name, pool);
+        }
+        return new ReplicaLagMonitor(replicas, replicaProperties.getLagQuery(),
+                replicaProperties.getMaxReplicaLag());
+    }
+
+    @Bean
+    @Primary
+    public ReadWriteRoutingDataSource dataSource(DataSourceProperties primaryProperties,
+                                                 ReplicaLagMonitor replicaLagMonitor) {
+        HikariDataSource primary = primaryProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primary.setPoolName(ReadWriteRoutingDataSource.PRIMARY);
+        return new ReadWriteRoutingDataSource(primary, replicaLagMonitor);
+    }
+
+    // the registry is only bound once the pools exist, as it depends on the data source
+    @Bean
+    public MeterBinder dataSourcePoolsMeterBinder(DataSource dataSource, ReplicaLagMonitor replicaLagMonitor) {
+        return registry -> {
+            List<DataSource> pools = new ArrayList<>(replicaLagMonitor.getReplicas().values());
+            try {
+                pools.add(dataSource.unwrap(ReadWriteRoutingDataSource.class).getPrimary());
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not find the primary pool", e);
+            }
+            for (DataSource pool : pools) {
+                HikariDataSource hikari = (HikariDataSource) pool;
+                // Spring Boot may have found the primary behind the routing
+                if (hikari.getMetricRegistry() == null && hikari.getMetricsTrackerFactory() == null) {
+                    hikari.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+                }
+            }
+        };
+    }
+}
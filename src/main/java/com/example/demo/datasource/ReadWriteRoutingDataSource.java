@@ -0,0 +1,63 @@
+package com.example.demo.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sends the statements of read-only transactions to a replica and everything
+ * else to the primary.
+ *
+ * The JPA transaction manager gets the connection of a transaction before it
+ * flags the transaction read-only, so the routing is wrapped in a lazy proxy:
+ * the actual connection is only taken on the first statement, once the flag
+ * is set.
+ */
+public class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    static final String PRIMARY = "primary";
+
+    private final HikariDataSource primary;
+
+    ReadWriteRoutingDataSource(HikariDataSource primary, ReplicaLagMonitor replicaLagMonitor) {
+        this.primary = primary;
+
+        Map<Object, Object> targets = new HashMap<>(replicaLagMonitor.getReplicas());
+        targets.put(PRIMARY, primary);
+        AbstractRoutingDataSource routing = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                if (TransactionSynchronizationManager.isActualTransactionActive()
+                        && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                    String replica = replicaLagMonitor.nextReplica();
+                    if (replica != null) {
+                        ReplicaReads.routed();
+                        return replica;
+                    }
+                }
+                return PRIMARY;
+            }
+        };
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+
+        setTargetDataSource(routing);
+        afterPropertiesSet();
+    }
+
+    HikariDataSource getPrimary() {
+        return primary;
+    }
+
+    @Override
+    public void close() {
+        // the replicas are closed by their monitor
+        primary.close();
+    }
+}
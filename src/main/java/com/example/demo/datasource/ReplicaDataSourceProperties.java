@@ -0,0 +1,42 @@
+package com.example.demo.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The read replicas, e.g.
+ * student.datasource.replicas[0].url=jdbc:postgresql://replica-1:5432/crudmax
+ * The username and password default to those of spring.datasource.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "student.datasource")
+public class ReplicaDataSourceProperties {
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    // replicas further behind the primary are skipped until they catch up
+    private Duration maxReplicaLag = Duration.ofSeconds(5);
+
+    /**
+     * Tells how far behind the primary a replica is, in seconds. By default
+     * the replay delay of a PostgreSQL standby, 0 when it replayed all it
+     * received, as an idle primary sends nothing to replay.
+     */
+    private String lagQuery = "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END";
+
+    @Getter
+    @Setter
+    public static class Replica {
+
+        private String url;
+        private String username;
+        private String password;
+    }
+}
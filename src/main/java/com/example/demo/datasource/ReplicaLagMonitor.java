@@ -0,0 +1,103 @@
+package com.example.demo.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks periodically how far behind the primary each replica is, and hands
+ * out the replicas close enough, in turn. A replica that cannot be reached
+ * counts as too far behind. Until their first check, no replica is used.
+ */
+@Slf4j
+public class ReplicaLagMonitor implements Closeable {
+
+    private final Map<String, DataSource> replicas;
+    private final String lagQuery;
+    private final Duration maxLag;
+
+    // the names of the replicas in use, replaced as a whole by each check
+    private volatile List<String> usableReplicas = List.of();
+    private final AtomicInteger next = new AtomicInteger();
+
+    ReplicaLagMonitor(Map<String, DataSource> replicas, String lagQuery, Duration maxLag) {
+        this.replicas = replicas;
+        this.lagQuery = lagQuery;
+        this.maxLag = maxLag;
+    }
+
+    /**
+     * @return the name of the replica to read from, null to read from the primary
+     */
+    String nextReplica() {
+        List<String> usable = usableReplicas;
+        if (usable.isEmpty()) {
+            return null;
+        }
+        return usable.get(Math.floorMod(next.getAndIncrement(), usable.size()));
+    }
+
+    Map<String, DataSource> getReplicas() {
+        return replicas;
+    }
+
+    @Scheduled(fixedDelayString = "${student.datasource.lag-check-interval-ms:5000}")
+    public void checkLag() {
+        List<String> usable = new ArrayList<>();
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            String name = replica.getKey();
+            boolean wasUsable = usableReplicas.contains(name);
+            try {
+                double lagSeconds = lagSeconds(replica.getValue());
+                if (lagSeconds * 1000 <= maxLag.toMillis()) {
+                    usable.add(name);
+                    if (!wasUsable) {
+                        log.info("Reading from replica {}, {} s behind the primary", name, lagSeconds);
+                    }
+                } else if (wasUsable) {
+                    log.warn("Replica {} is {} s behind the primary, reading from the primary instead",
+                            name, lagSeconds);
+                }
+            } catch (SQLException e) {
+                if (wasUsable) {
+                    log.warn("Could not check replica {}, reading from the primary instead: {}",
+                            name, e.getMessage());
+                }
+            }
+        }
+        usableReplicas = List.copyOf(usable);
+    }
+
+    private double lagSeconds(DataSource replica) throws SQLException {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(lagQuery)) {
+            // no row or null: nothing to replay
+            return resultSet.next() ? resultSet.getDouble(1) : 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        for (DataSource replica : replicas.values()) {
+            if (replica instanceof Closeable) {
+                try {
+                    ((Closeable) replica).close();
+                } catch (Exception e) {
+                    log.warn("Could not close replica pool", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.demo.datasource;
+
+/**
+ * Tells whether the reads of the current thread, while tracked, were routed
+ * to a replica. A replica may lag behind the primary, so what it returns
+ * cannot be labelled with a version counted from the committed changes.
+ *
+ * <pre>
+ * try (ReplicaReads reads = ReplicaReads.track()) {
+ *     ... read ...
+ *     boolean fromReplica = reads.routedToReplica();
+ * }
+ * </pre>
+ */
+public final class ReplicaReads implements AutoCloseable {
+
+    private static final ThreadLocal<ReplicaReads> CURRENT = new ThreadLocal<>();
+
+    // the tracking this one is nested in, restored on close
+    private final ReplicaReads outer;
+    private boolean routedToReplica;
+
+    private ReplicaReads(ReplicaReads outer) {
+        this.outer = outer;
+    }
+
+    public static ReplicaReads track() {
+        ReplicaReads reads = new ReplicaReads(CURRENT.get());
+        CURRENT.set(reads);
+        return reads;
+    }
+
+    // called by ReadWriteRoutingDataSource when it picks a replica
+    public static void routed() {
+        for (ReplicaReads reads = CURRENT.get(); reads != null; reads = reads.outer) {
+            reads.routedToReplica = true;
+        }
+    }
+
+    public boolean routedToReplica() {
+        return routedToReplica;
+    }
+
+    @Override
+    public void close() {
+        if (outer == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(outer);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.error;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.student.exception.ApiException;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
+
+/**
+ * Answers the failed API requests with a problem detail, instead of letting
+ * them reach the error page: the business exceptions with the status of their
+ * ResponseStatus and their message, and the request errors detected by
+ * Spring MVC (unreadable body, missing or mistyped parameter, wrong method...)
+ * with their usual status.
+ *
+ * Errors raised before a controller is chosen, like unknown paths, are
+ * answered by ErrorControllerImpl.
+ */
+@RestControllerAdvice(basePackageClasses = DemoApplication.class)
+public class ApiExceptionHandler extends ResponseEntityExceptionHandler {
+
+    // appended by Spring to the messages of its exceptions
+    private static final String NESTED_EXCEPTION = "; nested exception is";
+
+    @ExceptionHandler(ApiException.class)
+    public ResponseEntity<Object> handleBusinessException(ApiException ex, WebRequest request) {
+        ResponseStatus responseStatus =
+                AnnotatedElementUtils.findMergedAnnotation(ex.getClass(), ResponseStatus.class);
+        HttpStatus status = responseStatus == null ? HttpStatus.INTERNAL_SERVER_ERROR : responseStatus.code();
+        return new ResponseEntity<>(
+                Problem.of(status, ex.getMessage(), path(request)), problemHeaders(null), status);
+    }
+
+    @Override
+    protected ResponseEntity<Object> handleExceptionInternal(
+            Exception ex, Object body, HttpHeaders headers, HttpStatus status, WebRequest request) {
+        // only client errors are detailed, without the internal exception they wrap
+        String detail = status.is4xxClientError() ? withoutNested(ex.getMessage()) : null;
+        return new ResponseEntity<>(
+                Problem.of(status, detail, path(request)), problemHeaders(headers), status);
+    }
+
+    private static String withoutNested(String message) {
+        if (message == null) {
+            return null;
+        }
+        int nested = message.indexOf(NESTED_EXCEPTION);
+        return nested < 0 ? message : message.substring(0, nested);
+    }
+
+    private static HttpHeaders problemHeaders(HttpHeaders headers) {
+        HttpHeaders problemHeaders = new HttpHeaders();
+        if (headers != null) {
+            // e.g. Allow on 405
+            problemHeaders.putAll(headers);
+        }
+        problemHeaders.setContentType(MediaType.APPLICATION_PROBLEM_JSON);
+        return problemHeaders;
+    }
+
+    private static String path(WebRequest request) {
+        return request instanceof ServletWebRequest
+                ? ((ServletWebRequest) request).getRequest().getRequestURI()
+                : null;
+    }
+}
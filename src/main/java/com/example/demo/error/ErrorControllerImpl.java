@@ -1,15 +1,50 @@
 package com.example.demo.error;
 
 import org.springframework.boot.web.servlet.error.ErrorController;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.view.json.MappingJackson2JsonView;
 
+import javax.servlet.RequestDispatcher;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * The errors that no controller answered. Those of the API, like unknown
+ * paths, get a problem detail. The other paths are routes of the React
+ * application, which is served in their place.
+ */
 @Controller
 public class ErrorControllerImpl implements ErrorController {
 
+    static final String API_PATH = "/api/";
+
     @RequestMapping("/error")
-    public String error() {
-        return "forward:/index.html";
+    public ModelAndView error(HttpServletRequest request) {
+        String path = (String) request.getAttribute(RequestDispatcher.ERROR_REQUEST_URI);
+        if (path == null || !path.startsWith(API_PATH)) {
+            return new ModelAndView("forward:/index.html");
+        }
+
+        HttpStatus status = status(request);
+        String message = (String) request.getAttribute(RequestDispatcher.ERROR_MESSAGE);
+        // the message of internal errors is not for the client
+        String detail = status.is4xxClientError() && StringUtils.hasText(message) ? message : null;
+
+        MappingJackson2JsonView view = new MappingJackson2JsonView();
+        view.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+        view.setExtractValueFromSingleKeyModel(true);
+        ModelAndView problem = new ModelAndView(view, "problem", Problem.of(status, detail, path));
+        problem.setStatus(status);
+        return problem;
     }
-}
 
+    private static HttpStatus status(HttpServletRequest request) {
+        Object code = request.getAttribute(RequestDispatcher.ERROR_STATUS_CODE);
+        HttpStatus status = code instanceof Integer ? HttpStatus.resolve((Integer) code) : null;
+        return status == null ? HttpStatus.INTERNAL_SERVER_ERROR : status;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.demo.error;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Error body of the API, an RFC 7807 problem detail served as
+ * application/problem+json. Without a specific type the title is the
+ * reason phrase of the status.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Problem {
+
+    public static final String DEFAULT_TYPE = "about:blank";
+
+    private final String type;
+    private final String title;
+    private final int status;
+    // null when there is nothing to tell the client, e.g. on internal errors
+    private final String detail;
+    // the path of the failed request
+    private final String instance;
+
+    public static Problem of(HttpStatus status, String detail, String instance) {
+        return new Problem(DEFAULT_TYPE, status.getReasonPhrase(), status.value(), detail, instance);
+    }
+}
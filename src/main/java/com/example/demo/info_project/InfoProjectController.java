@@ -1,27 +1,85 @@
 package com.example.demo.info_project;
 
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+
+/**
+ * The diagram is loaded and hashed once. Its hash is the ETag, so browsers
+ * revalidate with If-None-Match and get a 304 without the image, and Spring
+ * answers Range requests on the Resource body with 206 partial content.
+ */
 @RestController
 @RequestMapping(path = "api/v1")
+// reads and hashes the diagram, created on its first request instead of at startup
+@Lazy
 public class InfoProjectController {
 
+    static final String PROJECT_DIAGRAM = "static/images/project_diagram.jpg";
+    // the URL is not versioned, so the diagram is revalidated after a while
+    static final Duration MAX_AGE = Duration.ofHours(1);
+
+    private final Resource projectDiagram;
+    // null when the diagram is missing
+    private final String projectDiagramETag;
+    private final long projectDiagramLastModified;
+
+    public InfoProjectController() {
+        this(new ClassPathResource(PROJECT_DIAGRAM));
+    }
+
+    InfoProjectController(Resource projectDiagram) {
+        this.projectDiagram = projectDiagram;
+        if (projectDiagram.exists()) {
+            this.projectDiagramETag = "\"" + contentHash(projectDiagram) + "\"";
+            this.projectDiagramLastModified = lastModified(projectDiagram);
+        } else {
+            this.projectDiagramETag = null;
+            this.projectDiagramLastModified = -1;
+        }
+    }
+
     @GetMapping("/about-project")
     public ResponseEntity<Resource> getProjectDiagram() {
-        try {
-            // Load the image from the resources folder
-            Resource resource = new ClassPathResource("static/images/project_diagram.jpg");
-            return ResponseEntity.ok()
-                    .contentType(MediaType.IMAGE_JPEG)
-                    .body(resource);
-        } catch (Exception e) {
+        if (projectDiagramETag == null) {
             return ResponseEntity.notFound().build();
         }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_JPEG)
+                .cacheControl(CacheControl.maxAge(MAX_AGE).cachePublic())
+                .eTag(projectDiagramETag);
+        if (projectDiagramLastModified > 0) {
+            response.lastModified(projectDiagramLastModified);
+        }
+        return response.body(projectDiagram);
+    }
+
+    private static String contentHash(Resource resource) {
+        try (InputStream content = resource.getInputStream()) {
+            return DigestUtils.md5DigestAsHex(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + resource, e);
+        }
+    }
+
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            // the ETag is enough
+            return -1;
+        }
     }
-}
\ No newline at end of file
+}
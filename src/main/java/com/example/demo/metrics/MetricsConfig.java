@@ -0,0 +1,21 @@
+package com.example.demo.metrics;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Spring Boot already times the HTTP requests (http.server.requests), the
+ * repository calls (spring.data.repository.invocations) and exposes the
+ * Hikari pool and Hibernate statistics. This adds the @Timed services.
+ */
+@Configuration
+public class MetricsConfig {
+
+    // times the classes and methods annotated with @Timed, tagged with class, method and exception
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.demo.sql;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Counts the statements of each API request and warns when a request uses
+ * more than its budget, or runs the same SELECT again and again, the mark of
+ * an N+1 pattern. Statements run on other threads, e.g. by the streamed
+ * exports, are not counted.
+ */
+@Slf4j
+class SqlBudgetFilter extends OncePerRequestFilter {
+
+    private final int statementBudget;
+    private final int repeatedSelectThreshold;
+
+    SqlBudgetFilter(int statementBudget, int repeatedSelectThreshold) {
+        this.statementBudget = statementBudget;
+        this.repeatedSelectThreshold = repeatedSelectThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        SqlStatementStats outer = SqlStatementCounter.start();
+        SqlStatementStats stats;
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            stats = SqlStatementCounter.stop(outer);
+        }
+
+        if (stats.total() > statementBudget) {
+            log.warn("{} {} ran {}, over the budget of {}",
+                    request.getMethod(), request.getRequestURI(), stats, statementBudget);
+        }
+        stats.mostRepeatedSelect(repeatedSelectThreshold).ifPresent(select ->
+                log.warn("{} {} ran the same SELECT {} times, possible N+1: {}",
+                        request.getMethod(), request.getRequestURI(), select.getValue(), select.getKey()));
+    }
+}
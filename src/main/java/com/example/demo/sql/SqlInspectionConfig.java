@@ -0,0 +1,50 @@
+package com.example.demo.sql;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the data source with datasource-proxy to see the statements that are
+ * actually sent, instead of having Hibernate print each of them (show-sql).
+ */
+@Configuration
+public class SqlInspectionConfig {
+
+    // static: post-processes the data source before the rest of the configuration is created
+    @Bean
+    public static BeanPostProcessor sqlInspectionDataSourcePostProcessor(
+            @Value("${student.sql.slow-query-ms:500}") long slowQueryMillis,
+            @Value("${student.sql.slow-query-max-parameters:10}") int maxLoggedParameters,
+            @Value("${student.sql.slow-query-max-parameter-length:50}") int maxLoggedValueLength) {
+        SqlInspectionListener listener =
+                new SqlInspectionListener(slowQueryMillis, maxLoggedParameters, maxLoggedValueLength);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(beanName, (DataSource) bean)
+                            .listener(listener)
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlBudgetFilter> sqlBudgetFilter(
+            @Value("${student.sql.statement-budget:20}") int statementBudget,
+            @Value("${student.sql.repeated-select-threshold:5}") int repeatedSelectThreshold) {
+        FilterRegistrationBean<SqlBudgetFilter> registration = new FilterRegistrationBean<>(
+                new SqlBudgetFilter(statementBudget, repeatedSelectThreshold));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.sql;
+
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Sees every statement sent through the data source: counts it in the scope
+ * of the current thread, and logs it when it took longer than the threshold,
+ * with a sample of its bind parameters.
+ */
+@Slf4j
+class SqlInspectionListener implements QueryExecutionListener {
+
+    private final long slowQueryMillis;
+    private final int maxLoggedParameters;
+    private final int maxLoggedValueLength;
+
+    SqlInspectionListener(long slowQueryMillis, int maxLoggedParameters, int maxLoggedValueLength) {
+        this.slowQueryMillis = slowQueryMillis;
+        this.maxLoggedParameters = maxLoggedParameters;
+        this.maxLoggedValueLength = maxLoggedValueLength;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        for (QueryInfo query : queryInfoList) {
+            SqlStatementCounter.record(type(query.getQuery()), query.getQuery());
+        }
+        if (execInfo.getElapsedTime() >= slowQueryMillis) {
+            for (QueryInfo query : queryInfoList) {
+                log.warn("Slow SQL ({} ms{}): {} parameters {}",
+                        execInfo.getElapsedTime(),
+                        execInfo.isBatch() ? ", batch of " + execInfo.getBatchSize() : "",
+                        query.getQuery(),
+                        sampleParameters(query));
+            }
+        }
+    }
+
+    static SqlStatementStats.Type type(String sql) {
+        String statement = sql.stripLeading();
+        int end = 0;
+        while (end < statement.length() && Character.isLetter(statement.charAt(end))) {
+            end++;
+        }
+        switch (statement.substring(0, end).toLowerCase(Locale.ROOT)) {
+            case "select":
+            case "with":
+                return SqlStatementStats.Type.SELECT;
+            case "insert":
+                return SqlStatementStats.Type.INSERT;
+            case "update":
+                return SqlStatementStats.Type.UPDATE;
+            case "delete":
+                return SqlStatementStats.Type.DELETE;
+            default:
+                return SqlStatementStats.Type.OTHER;
+        }
+    }
+
+    /**
+     * The first parameters of the first execution, each cut to a few characters:
+     * enough to reproduce the plan, without dumping whole batches or documents.
+     */
+    String sampleParameters(QueryInfo query) {
+        List<List<ParameterSetOperation>> executions = query.getParametersList();
+        if (executions.isEmpty()) {
+            return "[]";
+        }
+        return executions.get(0).stream()
+                .limit(maxLoggedParameters)
+                .map(operation -> {
+                    // the arguments of the setter: the parameter index or name, then the
+                    // value, except for setNull whose second argument is the SQL type
+                    String text = ParameterSetOperation.isSetNullParameterOperation(operation)
+                            ? "null"
+                            : String.valueOf(operation.getArgs()[1]);
+                    return text.length() <= maxLoggedValueLength
+                            ? text
+                            : text.substring(0, maxLoggedValueLength) + "...";
+                })
+                .collect(Collectors.joining(", ", "[", "]"));
+    }
+}
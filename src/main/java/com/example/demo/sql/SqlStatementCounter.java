@@ -0,0 +1,64 @@
+package com.example.demo.sql;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Counts the statements sent by the current thread between start and stop.
+ * Scopes nest: the statements of an inner scope also count in the outer one,
+ * so a test can count the statements of a request that SqlBudgetFilter counts
+ * as well.
+ */
+public final class SqlStatementCounter {
+
+    private static final ThreadLocal<SqlStatementStats> CURRENT = new ThreadLocal<>();
+
+    private SqlStatementCounter() {
+    }
+
+    /**
+     * @return the enclosing scope, to give back to stop
+     */
+    public static SqlStatementStats start() {
+        SqlStatementStats outer = CURRENT.get();
+        CURRENT.set(new SqlStatementStats());
+        return outer;
+    }
+
+    /**
+     * @return the statements of the scope that ends
+     */
+    public static SqlStatementStats stop(SqlStatementStats outer) {
+        SqlStatementStats stats = CURRENT.get();
+        if (outer == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(outer);
+            if (stats != null) {
+                outer.addAll(stats);
+            }
+        }
+        return stats == null ? new SqlStatementStats() : stats;
+    }
+
+    /**
+     * Runs the action in its own scope, e.g. in a test
+     * SqlStatementCounter.count(() -> mockMvc.perform(post(...)))
+     */
+    public static SqlStatementStats count(Callable<?> action) throws Exception {
+        SqlStatementStats outer = start();
+        SqlStatementStats stats;
+        try {
+            action.call();
+        } finally {
+            stats = stop(outer);
+        }
+        return stats;
+    }
+
+    static void record(SqlStatementStats.Type type, String sql) {
+        SqlStatementStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.add(type, sql);
+        }
+    }
+}
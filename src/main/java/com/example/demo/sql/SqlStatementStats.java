@@ -0,0 +1,60 @@
+package com.example.demo.sql;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The SQL statements sent to the database within a scope, usually one HTTP
+ * request. A JDBC batch counts as one statement, it is one round-trip.
+ * Only used by the thread that runs the scope.
+ */
+public class SqlStatementStats {
+
+    public enum Type {
+        SELECT,
+        INSERT,
+        UPDATE,
+        DELETE,
+        OTHER
+    }
+
+    private final Map<Type, Integer> counts = new EnumMap<>(Type.class);
+    // how many times each SELECT ran, to spot N+1 patterns
+    private final Map<String, Integer> selects = new HashMap<>();
+
+    void add(Type type, String sql) {
+        counts.merge(type, 1, Integer::sum);
+        if (type == Type.SELECT) {
+            selects.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    void addAll(SqlStatementStats other) {
+        other.counts.forEach((type, count) -> counts.merge(type, count, Integer::sum));
+        other.selects.forEach((sql, count) -> selects.merge(sql, count, Integer::sum));
+    }
+
+    public int total() {
+        return counts.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    public int count(Type type) {
+        return counts.getOrDefault(type, 0);
+    }
+
+    /**
+     * @return the SELECT that ran the most, when it ran at least threshold times
+     */
+    public Optional<Map.Entry<String, Integer>> mostRepeatedSelect(int threshold) {
+        return selects.entrySet().stream()
+                .filter(select -> select.getValue() >= threshold)
+                .max(Map.Entry.comparingByValue());
+    }
+
+    @Override
+    public String toString() {
+        return total() + " statements " + counts;
+    }
+}
@@ -4,7 +4,11 @@
 
 package com.example.demo.student;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.constraints.Email;
@@ -18,19 +22,40 @@ import javax.validation.constraints.NotNull;
  *  @Data, but we should make all attributes to final for JPA using
  * */
 @ToString
+@DynamicUpdate // UPDATE only the columns that changed
 @Getter
 @Setter
 @EqualsAndHashCode
 @NoArgsConstructor
-@AllArgsConstructor
 @Entity
-@Table
+@Table(indexes = {
+        // keyset pagination by name, email is already covered by its unique constraint
+        @Index(name = "student_name_id_idx", columnList = "name, id"),
+        // search by gender, in id order
+        @Index(name = "student_gender_id_idx", columnList = "gender, id"),
+        // changes since a revision, see StudentSyncService
+        @Index(name = "student_revision_id_idx", columnList = "revision, id")
+        // the case-insensitive name and email searches use the PostgreSQL
+        // expression indexes of the V2 migration, JPA cannot declare them
+})
 public class Student {
+    /**
+     * Ids are handed out in blocks: one nextval reserves ID_ALLOCATION_SIZE ids
+     * starting at the returned value (pooled-lo), so inserts do not pay a
+     * sequence round-trip each and can be sent as JDBC batches.
+     * The database sequence must be incremented by the same amount.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @SequenceGenerator(
+    @GenericGenerator(
             name = "student_sequence",
-            sequenceName = "student_sequence",
-            allocationSize = 1
+            strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+            parameters = {
+                    @Parameter(name = "sequence_name", value = "student_sequence"),
+                    @Parameter(name = "increment_size", value = "" + ID_ALLOCATION_SIZE),
+                    @Parameter(name = "optimizer", value = "pooled-lo")
+            }
     )
     @GeneratedValue(
             generator = "student_sequence",
@@ -46,11 +71,46 @@ public class Student {
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private Gender gender;
+    // optimistic locking, exposed to the clients as the ETag of the student
+    @Version
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+    // revision of the last change, see StudentRevisionClock; 0 for the rows of earlier versions
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long revision;
+
+    public Student(Long id, String name, String email, Gender gender, Long version) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.gender = gender;
+        this.version = version;
+    }
 
     public Student(String name, String email, Gender gender) {
         this.name = name;
         this.email = email;
         this.gender = gender;
     }
+
+    /**
+     * Makes the student new again after the transaction inserting it rolled
+     * back, Hibernate had already assigned the id and the version.
+     */
+    public void resetIdentity() {
+        id = null;
+        version = null;
+    }
+
+    // the statements that bypass the entities set the revision themselves
+    @PrePersist
+    @PreUpdate
+    void nextRevision() {
+        revision = StudentRevisionClock.next();
+    }
 }
 
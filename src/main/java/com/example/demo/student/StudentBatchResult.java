@@ -0,0 +1,37 @@
+package com.example.demo.student;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of one student of a batch creation, {@code index} is its position in the request.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StudentBatchResult {
+
+    public enum Status {
+        CREATED,
+        INVALID,
+        DUPLICATE
+    }
+
+    private final int index;
+    private final Status status;
+    private final Long id;
+    private final String message;
+
+    public static StudentBatchResult created(int index, Long id) {
+        return new StudentBatchResult(index, Status.CREATED, id, null);
+    }
+
+    public static StudentBatchResult invalid(int index, String message) {
+        return new StudentBatchResult(index, Status.INVALID, null, message);
+    }
+
+    public static StudentBatchResult duplicate(int index, String message) {
+        return new StudentBatchResult(index, Status.DUPLICATE, null, message);
+    }
+}
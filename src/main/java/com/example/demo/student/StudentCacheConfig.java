@@ -0,0 +1,29 @@
+package com.example.demo.student;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * In-process cache of students by id, bounded in size and time.
+ * Hit, miss and eviction counts are published by Actuator as cache.* metrics.
+ */
+@Configuration
+@EnableCaching
+public class StudentCacheConfig {
+
+    public static final String STUDENT_CACHE = "students";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${student.cache.spec}") String cacheSpec) {
+        CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager(STUDENT_CACHE);
+        caffeineCacheManager.setCacheSpecification(cacheSpec);
+        // evictions of a transactional write happen after it commits, so that
+        // a concurrent read cannot cache the row as it was before the write
+        return new TransactionAwareCacheManagerProxy(caffeineCacheManager);
+    }
+}
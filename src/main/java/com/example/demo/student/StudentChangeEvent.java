@@ -0,0 +1,63 @@
+package com.example.demo.student;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published by every mutation of the students. Listeners that must only see
+ * committed changes use {@code @TransactionalEventListener}.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class StudentChangeEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Type type;
+    private final Long studentId;
+    // the student after the change, null for deletions and partial updates
+    private final Student student;
+    // a copy of the student before an update, null when it was not loaded
+    private final Student previous;
+    // the email and gender after the change, null when unknown or not patched
+    private final String email;
+    private final Gender gender;
+    // the partial update, null for the other changes
+    private final StudentPatch patch;
+    // the email and gender before a deletion or a partial update, null for the
+    // other changes and when the database did not return them (off PostgreSQL)
+    private final String previousEmail;
+    private final Gender previousGender;
+
+    public static StudentChangeEvent created(Student student) {
+        return new StudentChangeEvent(Type.CREATED, student.getId(), student, null,
+                student.getEmail(), student.getGender(), null, null, null);
+    }
+
+    public static StudentChangeEvent updated(Long studentId, Student previous, Student student) {
+        return new StudentChangeEvent(Type.UPDATED, studentId, student, previous,
+                student.getEmail(), student.getGender(), null, null, null);
+    }
+
+    public static StudentChangeEvent patched(Long studentId, StudentPatch patch) {
+        return patched(studentId, patch, null, null);
+    }
+
+    // a patch, with the email and gender it replaced when they are known
+    public static StudentChangeEvent patched(Long studentId, StudentPatch patch,
+                                             String previousEmail, Gender previousGender) {
+        return new StudentChangeEvent(Type.UPDATED, studentId, null, null,
+                patch.getEmail(), patch.getGender(), patch, previousEmail, previousGender);
+    }
+
+    public static StudentChangeEvent deleted(Long studentId, String email, Gender gender) {
+        return new StudentChangeEvent(Type.DELETED, studentId, null, null, null, null, null,
+                email, gender);
+    }
+}
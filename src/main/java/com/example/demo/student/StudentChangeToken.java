@@ -0,0 +1,58 @@
+package com.example.demo.student;
+
+import com.example.demo.student.exception.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque position in the changes of the students: the revision and the id of
+ * the last change a client received. Changes of the same revision are told
+ * apart by the id, so that a page can end between them.
+ *
+ * Also carries the revision up to which the changes were settled when the
+ * token was handed out: the deletions the client may still have to learn
+ * about are all after it, whatever the revision of the last change.
+ */
+@Getter
+@AllArgsConstructor
+public class StudentChangeToken {
+
+    // before every change, the start of a full sync
+    static final StudentChangeToken INITIAL = new StudentChangeToken(0, 0, 0);
+
+    private static final String SEPARATOR = ":";
+
+    private final long revision;
+    private final long id;
+    private final long issuedAt;
+
+    public boolean isBefore(StudentChangeToken other) {
+        return revision < other.revision || (revision == other.revision && id < other.id);
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString((revision + SEPARATOR + id + SEPARATOR + issuedAt)
+                        .getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static StudentChangeToken decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("expected 3 parts");
+            }
+            return new StudentChangeToken(
+                    Long.parseLong(parts[0]),
+                    Long.parseLong(parts[1]),
+                    Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid change token: " + token);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.demo.student;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The students created or updated and the ids of the students deleted after
+ * a change token, and the token to ask for the following changes with.
+ * A client applies the upserts, then the deletions, and asks again right
+ * away while hasMore is true.
+ */
+@Getter
+@AllArgsConstructor
+public class StudentChanges {
+
+    private final List<Student> upserted;
+    private final List<Long> deleted;
+    private final String next;
+    private final boolean hasMore;
+}
@@ -1,12 +1,22 @@
 package com.example.demo.student;
 
+import com.example.demo.datasource.ReplicaReads;
 import lombok.AllArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponents;
 import com.example.demo.student.exception.BadRequestException;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.util.List;
+import java.util.Set;
 
 // Gives ability to expose resources, so endpoints that the clients can consume
 @RestController
@@ -16,14 +26,90 @@ import java.util.List;
 public class StudentController {
 
     private final StudentService studentService;
+    private final StudentCollectionVersion studentCollectionVersion;
     /**
      * to expose the return of this function, we should to expose this as
-     * an endpoint, so annotate it
+     * an endpoint, so annotate it.
+     * Students are returned one keyset page at a time, the next page
+     * is advertised in the Link header (rel="next").
+     * fields=id,name returns only these fields, read without loading entities.
+     * The ETag changes with every mutation of the students, a matching
+     * If-None-Match is answered with 304 before the database is queried.
+     * Pages read from a lagging replica get no ETag, see toResponse.
      */
     @GetMapping
-    public List<Student> getAllStudents() {
+    public ResponseEntity<List<?>> getAllStudents(
+            @RequestParam(name = "size", defaultValue = "" + StudentPageRequest.DEFAULT_SIZE) int size,
+            @RequestParam(name = "sort", defaultValue = "id") String sort,
+            @RequestParam(name = "direction", defaultValue = "asc") String direction,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "fields", required = false) String fields,
+            HttpServletRequest request) {
 
-        return studentService.getAllStudents();
+        String eTag = studentCollectionVersion.currentETag();
+        if (isNotModified(request, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+
+        StudentPageRequest pageRequest = StudentPageRequest.of(sort, direction, cursor, size);
+        Set<StudentField> studentFields = StudentField.fromParameter(fields);
+        try (ReplicaReads reads = ReplicaReads.track()) {
+            StudentPage<?> page = studentFields == null
+                    ? studentService.getStudents(pageRequest)
+                    : studentService.getStudentFields(pageRequest, studentFields);
+            return toResponse(page, reads.routedToReplica() ? null : eTag);
+        }
+    }
+
+    /**
+     * Filters the students in the database, paginated like the listing.
+     * Names are matched by prefix unless match=contains, emails by domain.
+     */
+    @GetMapping(path = "search")
+    public ResponseEntity<List<?>> searchStudents(
+            @RequestParam(name = "name", required = false) String name,
+            @RequestParam(name = "match", defaultValue = "prefix") String match,
+            @RequestParam(name = "emailDomain", required = false) String emailDomain,
+            @RequestParam(name = "gender", required = false) String gender,
+            @RequestParam(name = "size", defaultValue = "" + StudentPageRequest.DEFAULT_SIZE) int size,
+            @RequestParam(name = "sort", defaultValue = "id") String sort,
+            @RequestParam(name = "direction", defaultValue = "asc") String direction,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "fields", required = false) String fields,
+            HttpServletRequest request) {
+
+        // the results change with the collection, so they share its ETag
+        String eTag = studentCollectionVersion.currentETag();
+        if (isNotModified(request, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+
+        StudentSearchCriteria criteria = StudentSearchCriteria.of(name, match, emailDomain, gender);
+        StudentPageRequest pageRequest = StudentPageRequest.of(sort, direction, cursor, size);
+        Set<StudentField> studentFields = StudentField.fromParameter(fields);
+        try (ReplicaReads reads = ReplicaReads.track()) {
+            StudentPage<?> page = studentFields == null
+                    ? studentService.searchStudents(criteria, pageRequest)
+                    : studentService.searchStudentFields(criteria, pageRequest, studentFields);
+            return toResponse(page, reads.routedToReplica() ? null : eTag);
+        }
+    }
+
+    /**
+     * The ETag of a student is its version, send it back in If-Match
+     * to patch the student without overwriting a concurrent change.
+     * A matching If-None-Match is answered with 304 without serialising
+     * the student, which usually comes from the cache.
+     */
+    @GetMapping(path = "{studentId}")
+    public ResponseEntity<Student> getStudent(
+            @PathVariable("studentId") Long studentId) {
+        Student student = studentService.getStudent(studentId);
+
+        return ResponseEntity.ok()
+                .varyBy(HttpHeaders.ACCEPT)
+                .eTag(StudentETag.of(student.getVersion()))
+                .body(student);
     }
 
     @PostMapping
@@ -35,6 +121,27 @@ public class StudentController {
         studentService.addStudent(student);
     }
 
+    /**
+     * Creates many students at once, the response holds one result per student
+     * in request order. Invalid or duplicated students do not prevent the others
+     * from being created.
+     */
+    @PostMapping(path = "batch")
+    public List<StudentBatchResult> addStudents(@RequestBody List<Student> students) {
+
+        return studentService.addStudents(students);
+    }
+
+    /**
+     * Bulk delete, e.g. DELETE api/v1/students?ids=1,2,3
+     * Answers with the number of deleted students.
+     */
+    @DeleteMapping
+    public int deleteStudents(@RequestParam("ids") Set<Long> studentIds) {
+
+        return studentService.deleteStudents(studentIds);
+    }
+
     @DeleteMapping(path = "{studentId}")
     public void deleteStudent(
             @PathVariable("studentId") Long studentId) {
@@ -52,4 +159,55 @@ public class StudentController {
 
         studentService.updateStudent(studentId, student);
     }
+
+    /**
+     * Updates only the supplied fields. With an If-Match header the update
+     * is refused with 412 when the student changed in the meantime.
+     */
+    @PatchMapping(path = "{studentId}")
+    public ResponseEntity<Void> patchStudent(
+            @PathVariable("studentId") Long studentId,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody StudentPatch patch, BindingResult bindingResult) {
+        if (bindingResult.hasErrors()) {
+            throw new BadRequestException(bindingResult);
+        }
+
+        Long newVersion = studentService.patchStudent(
+                studentId, patch, StudentETag.parseIfMatch(ifMatch));
+        ResponseEntity.HeadersBuilder<?> response = ResponseEntity.noContent();
+        if (newVersion != null) {
+            response.eTag(StudentETag.of(newVersion));
+        }
+        return response.build();
+    }
+
+    // without a response, only compares the If-None-Match header of the request
+    private static boolean isNotModified(HttpServletRequest request, String eTag) {
+        return new ServletWebRequest(request).checkNotModified(eTag);
+    }
+
+    /**
+     * The ETag is left out when the page was read from a replica: the replica
+     * may not have applied the changes the version counts yet, and a client
+     * holding older data under the current ETag would never be told it changed.
+     */
+    private static ResponseEntity<List<?>> toResponse(StudentPage<?> page, String eTag) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                // let browsers revalidate with If-None-Match instead of refetching
+                .cacheControl(CacheControl.noCache())
+                // JSON, CBOR, Smile or protobuf, see MessageConverterConfig
+                .varyBy(HttpHeaders.ACCEPT);
+        if (eTag != null) {
+            response.eTag(eTag);
+        }
+        if (page.hasNext()) {
+            UriComponents next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.getNextCursor())
+                    .build();
+            response.header(HttpHeaders.LINK,
+                    "<" + next.getPath() + "?" + next.getQuery() + ">; rel=\"next\"");
+        }
+        return response.body(page.getContent());
+    }
 }
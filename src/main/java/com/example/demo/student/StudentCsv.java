@@ -0,0 +1,69 @@
+package com.example.demo.student;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV representation of a student (RFC 4180 quoting).
+ */
+public final class StudentCsv {
+
+    public static final String HEADER = "id,name,email,gender";
+
+    private StudentCsv() {
+    }
+
+    public static String toRow(Student student) {
+        return student.getId() + "," +
+                escape(student.getName()) + "," +
+                escape(student.getEmail()) + "," +
+                student.getGender();
+    }
+
+    /**
+     * Splits one CSV line into its fields, unquoting quoted fields.
+     * Fields spanning several lines are not supported.
+     */
+    public static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    // escaped quote
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
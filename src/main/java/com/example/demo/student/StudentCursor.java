@@ -0,0 +1,59 @@
+package com.example.demo.student;
+
+import com.example.demo.student.exception.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position: the id and the sort key value of the last student
+ * of a page. The next page starts strictly after this position, so paging
+ * costs an index seek instead of an OFFSET scan.
+ */
+@Getter
+@AllArgsConstructor
+public class StudentCursor {
+
+    private static final String SEPARATOR = ":";
+
+    private final Long lastId;
+    // null when the listing is sorted by id
+    private final String lastValue;
+
+    public static StudentCursor after(StudentSortKey sortKey, Student student) {
+        return after(sortKey, student.getId(), sortKey.valueOf(student));
+    }
+
+    public static StudentCursor after(StudentSortKey sortKey, Long id, Object sortValue) {
+        return new StudentCursor(
+                id,
+                sortKey == StudentSortKey.ID ? null : String.valueOf(sortValue));
+    }
+
+    public String encode() {
+        String raw = lastValue == null ? String.valueOf(lastId) : lastId + SEPARATOR + lastValue;
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static StudentCursor decode(String cursor, StudentSortKey sortKey) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (sortKey == StudentSortKey.ID) {
+                return new StudentCursor(Long.parseLong(raw), null);
+            }
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("missing sort value");
+            }
+            return new StudentCursor(
+                    Long.parseLong(raw.substring(0, separator)),
+                    raw.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor: " + cursor);
+        }
+    }
+}
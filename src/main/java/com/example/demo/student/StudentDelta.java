@@ -0,0 +1,24 @@
+package com.example.demo.student;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The data of a change pushed to the event stream: the student after a
+ * creation or full update, the changed fields after a partial update, only
+ * the id after a deletion.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StudentDelta {
+
+    private final Long studentId;
+    private final Student student;
+    private final StudentPatch patch;
+
+    static StudentDelta of(StudentChangeEvent event) {
+        return new StudentDelta(event.getStudentId(), event.getStudent(), event.getPatch());
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.student;
+
+import com.example.demo.student.exception.BadRequestException;
+
+/**
+ * Strong ETags of single students, derived from their version.
+ */
+public final class StudentETag {
+
+    private StudentETag() {
+    }
+
+    public static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Returns the version required by an If-Match header,
+     * or null when any version matches (no header or "*").
+     */
+    public static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String eTag = ifMatch.trim();
+        if (eTag.length() < 3 || !eTag.startsWith("\"") || !eTag.endsWith("\"")) {
+            throw new BadRequestException("If-Match must be a single strong ETag: " + ifMatch);
+        }
+        try {
+            return Long.parseLong(eTag.substring(1, eTag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Unknown ETag: " + ifMatch);
+        }
+    }
+}
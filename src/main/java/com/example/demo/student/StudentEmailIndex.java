@@ -0,0 +1,104 @@
+package com.example.demo.student;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.stream.Stream;
+
+/**
+ * In-memory index of the registered emails, used to skip the database lookup
+ * for emails that are definitely not taken, which is the common case.
+ *
+ * A positive answer only means the email may be taken and must be checked
+ * against the database, whose unique constraint stays the source of truth.
+ * Until the index is built, every email may be taken.
+ *
+ * Emails are added after their creation or update is committed. A Bloom filter
+ * cannot forget, so the index is rebuilt from the database periodically to drop
+ * the emails of deleted and updated students and to make room for new ones.
+ *
+ * The emails registered by other instances are only learnt at the next rebuild,
+ * so a negative answer is a hint, not a guarantee. The batch creation and the
+ * import catch the unique violation it can lead to, look every email up and
+ * insert again without the taken ones.
+ */
+@Slf4j
+@Component
+public class StudentEmailIndex {
+
+    static final double FALSE_POSITIVE_RATE = 0.01;
+    // leaves room for the students created until the next rebuild
+    static final long MIN_CAPACITY = 10_000;
+
+    private final StudentRepository studentRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // null until built
+    private volatile EmailBloomFilter filter;
+    // receives the emails added while it is filled from the database
+    private volatile EmailBloomFilter rebuilding;
+
+    public StudentEmailIndex(StudentRepository studentRepository,
+                             PlatformTransactionManager transactionManager) {
+        this.studentRepository = studentRepository;
+        // read-write, so that the emails are read from the primary: a read-only
+        // transaction could go to a lagging replica and miss the latest emails
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public boolean mightContain(String email) {
+        EmailBloomFilter current = filter;
+        return current == null || current.mightContain(email);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentChange(StudentChangeEvent event) {
+        if (event.getEmail() == null) {
+            return;
+        }
+        // rebuilding first: once it replaces the filter, the email must be in both
+        EmailBloomFilter next = rebuilding;
+        if (next != null) {
+            next.add(event.getEmail());
+        }
+        EmailBloomFilter current = filter;
+        if (current != null) {
+            current.add(event.getEmail());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(
+            initialDelayString = "${student.email-index.rebuild-interval-ms:21600000}",
+            fixedDelayString = "${student.email-index.rebuild-interval-ms:21600000}")
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        try {
+            long size = transactionTemplate.execute(status -> {
+                long count = studentRepository.count();
+                EmailBloomFilter next = new EmailBloomFilter(
+                        Math.max(MIN_CAPACITY, 2 * count), FALSE_POSITIVE_RATE);
+                // set before reading, so that emails committed meanwhile are not missed
+                rebuilding = next;
+                try (Stream<String> emails = studentRepository.streamEmails()) {
+                    emails.forEach(next::add);
+                }
+                filter = next;
+                return count;
+            });
+            log.info("Indexed {} student emails in {} ms",
+                    size, (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            // the previous filter, if any, stays in use
+            log.warn("Could not rebuild the student email index", e);
+        } finally {
+            rebuilding = null;
+        }
+    }
+}
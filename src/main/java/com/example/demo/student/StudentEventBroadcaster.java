@@ -0,0 +1,290 @@
+package com.example.demo.student;
+
+import com.example.demo.student.exception.TooManyEventStreamsException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes the committed student changes to the clients of the event stream.
+ *
+ * The committing thread only serializes the change once and offers it to the
+ * bounded queue of each client, it never waits for a client. A few sender
+ * threads write the queues out. A client too slow to keep up fills its queue:
+ * its pending changes are dropped and replaced by a single resync event,
+ * telling it to fetch the students again, instead of holding an ever growing
+ * backlog in memory.
+ *
+ * A client that stops reading makes the writes to its connection block. Each
+ * write is handed to a writer thread and the sender waits for it at most the
+ * send timeout, then drops that client, so that a few stalled clients cannot
+ * hold the senders of all the others. The blocked writer holds the monitor of
+ * the emitter, so the sender never completes it: the writer does if its write
+ * ever returns, the async request timeout otherwise. There are at most as many
+ * writers as clients allowed.
+ */
+@Slf4j
+@Component
+public class StudentEventBroadcaster {
+
+    static final String RESYNC = "resync";
+    static final String METRIC = "student.events";
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong eventIds = new AtomicLong();
+    private final ObjectMapper objectMapper;
+    private final Executor senders;
+    private final ExecutorService writers;
+    private final long sendTimeoutMillis;
+    private final int maxSubscribers;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+    private final Counter resyncs;
+    private final Counter stalls;
+
+    @Autowired
+    public StudentEventBroadcaster(ObjectMapper objectMapper,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${student.events.max-subscribers:1000}") int maxSubscribers,
+                                   @Value("${student.events.queue-capacity:256}") int queueCapacity,
+                                   // clients reconnect on their own once it expires
+                                   @Value("${student.events.timeout:PT30M}") Duration timeout,
+                                   @Value("${student.events.sender-threads:4}") int senderThreads,
+                                   @Value("${student.events.send-timeout:PT5S}") Duration sendTimeout) {
+        this(objectMapper, meterRegistry, maxSubscribers, queueCapacity, timeout, sendTimeout,
+                Executors.newFixedThreadPool(senderThreads, new CustomizableThreadFactory("student-events-")),
+                // a thread per write in progress, the stalled ones are abandoned with their client
+                new ThreadPoolExecutor(0, maxSubscribers, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                        new CustomizableThreadFactory("student-events-write-")));
+    }
+
+    StudentEventBroadcaster(ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry,
+                            int maxSubscribers,
+                            int queueCapacity,
+                            Duration timeout,
+                            Duration sendTimeout,
+                            Executor senders,
+                            ExecutorService writers) {
+        this.objectMapper = objectMapper;
+        this.maxSubscribers = maxSubscribers;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeout.toMillis();
+        this.sendTimeoutMillis = sendTimeout.toMillis();
+        this.senders = senders;
+        this.writers = writers;
+        Gauge.builder(METRIC + ".subscribers", subscribers, Set::size)
+                .description("Clients of the student event stream")
+                .register(meterRegistry);
+        this.resyncs = Counter.builder(METRIC + ".resyncs")
+                .description("Clients too slow to keep up, told to fetch the students again")
+                .register(meterRegistry);
+        this.stalls = Counter.builder(METRIC + ".stalls")
+                .description("Clients dropped because a write to them blocked longer than the send timeout")
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(timeoutMillis));
+    }
+
+    SseEmitter subscribe(SseEmitter emitter) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new TooManyEventStreamsException(
+                    "Too many clients follow the student changes, try again later");
+        }
+        Subscriber subscriber = new Subscriber(emitter);
+        subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onTimeout(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        // sends the headers right away, for the client to know it is connected
+        subscriber.offer(Message.comment("connected"));
+        return subscriber.emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentChange(StudentChangeEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(StudentDelta.of(event));
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize {}", event, e);
+            return;
+        }
+        Message message = new Message(Long.toString(eventIds.incrementAndGet()),
+                event.getType().name().toLowerCase(Locale.ROOT), data, null);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(message);
+        }
+    }
+
+    /**
+     * Keeps idle connections open through proxies, and finds the clients that
+     * went away without closing their connection.
+     */
+    @Scheduled(fixedDelayString = "${student.events.heartbeat-interval-ms:15000}")
+    public void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(Message.comment("heartbeat"));
+        }
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void close() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        if (senders instanceof ExecutorService) {
+            ((ExecutorService) senders).shutdownNow();
+        }
+        writers.shutdownNow();
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Queue<Message> queue = new ArrayBlockingQueue<>(queueCapacity);
+        // at most one sender drains a queue, in order
+        private final AtomicBoolean sending = new AtomicBoolean();
+        // no longer written to, e.g. after a write blocked too long
+        private volatile boolean dropped;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(Message message) {
+            if (dropped) {
+                return;
+            }
+            if (!queue.offer(message)) {
+                // too far behind: what it missed is replaced by a resync
+                queue.clear();
+                queue.offer(new Message(Long.toString(eventIds.incrementAndGet()), RESYNC, "{}", null));
+                resyncs.increment();
+            }
+            scheduleSend();
+        }
+
+        private void scheduleSend() {
+            if (!queue.isEmpty() && sending.compareAndSet(false, true)) {
+                senders.execute(this::send);
+            }
+        }
+
+        private void send() {
+            try {
+                Message message;
+                while (!dropped && (message = queue.poll()) != null) {
+                    write(message);
+                }
+            } catch (IOException | IllegalStateException | RejectedExecutionException e) {
+                // gone, already completed, or every writer is stuck
+                drop();
+                return;
+            } catch (TimeoutException e) {
+                // not reading anymore; completing the emitter here would wait for the writer
+                drop();
+                stalls.increment();
+                return;
+            } finally {
+                sending.set(false);
+            }
+            // a message may have been queued after the last poll
+            scheduleSend();
+        }
+
+        private void write(Message message) throws IOException, TimeoutException {
+            Future<?> write = writers.submit(() -> {
+                emitter.send(message.toEvent());
+                if (dropped) {
+                    // given up on while it was blocked
+                    emitter.complete();
+                }
+                return null;
+            });
+            try {
+                write.get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                // shutting down
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void drop() {
+            dropped = true;
+            subscribers.remove(this);
+            queue.clear();
+        }
+    }
+
+    private static final class Message {
+
+        private final String id;
+        private final String name;
+        private final String data;
+        private final String comment;
+
+        private Message(String id, String name, String data, String comment) {
+            this.id = id;
+            this.name = name;
+            this.data = data;
+            this.comment = comment;
+        }
+
+        static Message comment(String comment) {
+            return new Message(null, null, null, comment);
+        }
+
+        SseEmitter.SseEventBuilder toEvent() {
+            if (comment != null) {
+                return SseEmitter.event().comment(comment);
+            }
+            return SseEmitter.event().id(id).name(name).data(data, MediaType.APPLICATION_JSON);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.demo.student;
+
+import lombok.AllArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping(path = "api/v1/students/events")
+@AllArgsConstructor
+public class StudentEventController {
+
+    private final StudentEventBroadcaster studentEventBroadcaster;
+
+    /**
+     * Server-sent events of the committed changes: created, updated and deleted,
+     * with a StudentDelta as data, and resync when the client fell too far
+     * behind and must fetch the students again.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getEvents() {
+        return studentEventBroadcaster.subscribe();
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.demo.student;
+
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping(path = "api/v1/students/export")
+@AllArgsConstructor
+// rarely used, created on the first export instead of at startup
+@Lazy
+public class StudentExportController {
+
+    private final StudentExportService studentExportService;
+
+    /**
+     * Full dump of the students as NDJSON (default) or CSV.
+     * The body is written incrementally on an async thread instead of being buffered.
+     */
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> exportStudents(
+            @RequestParam(name = "format", defaultValue = "ndjson") String format) {
+        StudentExportFormat exportFormat = StudentExportFormat.fromParameter(format);
+
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("students." + exportFormat.getExtension())
+                        .build()
+                        .toString())
+                .body(outputStream -> studentExportService.export(exportFormat, outputStream));
+    }
+}
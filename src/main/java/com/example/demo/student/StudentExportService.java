@@ -0,0 +1,56 @@
+package com.example.demo.student;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the whole student table to a stream one row at a time.
+ * Rows are fetched from a database cursor and detached as soon as they are written,
+ * so the export runs in constant heap whatever the size of the table.
+ */
+@AllArgsConstructor
+@Service
+@Lazy
+public class StudentExportService {
+
+    private final StudentRepository studentRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    // the stream must be consumed inside the transaction that opened the cursor
+    @Transactional(readOnly = true)
+    public void export(StudentExportFormat format, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        if (format == StudentExportFormat.CSV) {
+            writer.write(StudentCsv.HEADER);
+            writer.write('\n');
+        }
+
+        try (Stream<Student> students = studentRepository.streamAll()) {
+            Iterator<Student> iterator = students.iterator();
+            while (iterator.hasNext()) {
+                Student student = iterator.next();
+                writer.write(format == StudentExportFormat.CSV
+                        ? StudentCsv.toRow(student)
+                        : objectMapper.writeValueAsString(student));
+                writer.write('\n');
+                // the row is written, let it be garbage collected
+                entityManager.detach(student);
+            }
+        }
+        writer.flush();
+    }
+}
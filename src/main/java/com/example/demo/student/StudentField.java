@@ -0,0 +1,50 @@
+package com.example.demo.student;
+
+import com.example.demo.student.exception.BadRequestException;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Fields of a student that list responses can be restricted to with fields=,
+ * e.g. fields=name for a dropdown. The id is always included.
+ */
+public enum StudentField {
+    ID("id"),
+    NAME("name"),
+    EMAIL("email"),
+    GENDER("gender");
+
+    private final String attribute;
+
+    StudentField(String attribute) {
+        this.attribute = attribute;
+    }
+
+    public String getAttribute() {
+        return attribute;
+    }
+
+    /**
+     * @return the requested fields and the id, or null when every field is requested
+     */
+    public static Set<StudentField> fromParameter(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        Set<StudentField> fields = EnumSet.of(ID);
+        for (String name : value.split(",")) {
+            fields.add(fromAttribute(name.trim()));
+        }
+        return fields.size() == values().length ? null : fields;
+    }
+
+    private static StudentField fromAttribute(String attribute) {
+        for (StudentField field : values()) {
+            if (field.attribute.equalsIgnoreCase(attribute)) {
+                return field;
+            }
+        }
+        throw new BadRequestException("Unsupported field: " + attribute);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.demo.student;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One page of students, or of some of their fields, and the cursor of the
+ * following page, which is null when this is the last page.
+ */
+@Getter
+@AllArgsConstructor
+public class StudentPage<T> {
+
+    private final List<T> content;
+    private final String nextCursor;
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.student;
+
+import com.example.demo.student.exception.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Parameters of one keyset page of the student listing.
+ */
+@Getter
+@AllArgsConstructor
+public class StudentPageRequest {
+
+    public static final int DEFAULT_SIZE = 50;
+    public static final int MAX_SIZE = 500;
+
+    private final StudentSortKey sortKey;
+    private final Sort.Direction direction;
+    // null for the first page
+    private final StudentCursor cursor;
+    private final int size;
+
+    public static StudentPageRequest of(String sort, String direction, String cursor, int size) {
+        if (size < 1) {
+            throw new BadRequestException("The page size must be positive.");
+        }
+        StudentSortKey sortKey = StudentSortKey.fromParameter(sort);
+        Sort.Direction sortDirection = Sort.Direction.fromOptionalString(direction)
+                .orElseThrow(() -> new BadRequestException("Unsupported sort direction: " + direction));
+        return new StudentPageRequest(
+                sortKey,
+                sortDirection,
+                cursor == null || cursor.isBlank() ? null : StudentCursor.decode(cursor, sortKey),
+                // bound the page so that one request cannot materialise the whole table
+                Math.min(size, MAX_SIZE));
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.demo.student;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.validation.constraints.Email;
+import javax.validation.constraints.Pattern;
+
+/**
+ * Partial update of a student, null fields are left unchanged.
+ * Pushed as such to the event stream, without the unchanged fields.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentPatch {
+    // null is allowed, but a supplied name must not be blank
+    @Pattern(regexp = "(?s).*\\S.*", message = "The name must not be blank.")
+    private String name;
+    @Email(message = "The email format is invalid, try something like: aaa@bbb.ccc")
+    private String email;
+    private Gender gender;
+
+    public boolean hasChanges() {
+        return name != null || email != null || gender != null;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.demo.student;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Protocol Buffers representation of the students, the messages of
+ * src/main/proto/student.proto written field by field, so that the build
+ * needs no protoc and the entities stay the only student classes.
+ */
+public final class StudentProtobuf {
+
+    public static final MediaType MEDIA_TYPE = new MediaType("application", "x-protobuf");
+
+    // field numbers of student.proto
+    private static final int LIST_STUDENTS = 1;
+    private static final int ID = 1;
+    private static final int NAME = 2;
+    private static final int EMAIL = 3;
+    private static final int GENDER = 4;
+    private static final int VERSION = 5;
+
+    private StudentProtobuf() {
+    }
+
+    /**
+     * Writes a StudentList. Its only field is the repeated student, so the
+     * students are streamed one after the other, the size of the whole list
+     * is never needed.
+     *
+     * @param students students, or the field maps of a fields= projection
+     */
+    public static void writeList(List<?> students, OutputStream output) throws IOException {
+        CodedOutputStream out = CodedOutputStream.newInstance(output);
+        for (Object student : students) {
+            Fields fields = Fields.of(student);
+            out.writeTag(LIST_STUDENTS, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(fields.size());
+            fields.writeTo(out);
+        }
+        out.flush();
+    }
+
+    public static void write(Student student, OutputStream output) throws IOException {
+        CodedOutputStream out = CodedOutputStream.newInstance(output);
+        Fields.of(student).writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * The fields of one Student message, null when absent.
+     */
+    private static final class Fields {
+
+        private final Long id;
+        private final String name;
+        private final String email;
+        private final Gender gender;
+        private final Long version;
+
+        private Fields(Long id, String name, String email, Gender gender, Long version) {
+            this.id = id;
+            this.name = name;
+            this.email = email;
+            this.gender = gender;
+            this.version = version;
+        }
+
+        static Fields of(Object student) {
+            if (student instanceof Student) {
+                Student entity = (Student) student;
+                return new Fields(entity.getId(), entity.getName(), entity.getEmail(),
+                        entity.getGender(), entity.getVersion());
+            }
+            if (student instanceof Map) {
+                Map<?, ?> fields = (Map<?, ?>) student;
+                Object gender = fields.get(StudentField.GENDER.getAttribute());
+                return new Fields(
+                        (Long) fields.get(StudentField.ID.getAttribute()),
+                        (String) fields.get(StudentField.NAME.getAttribute()),
+                        (String) fields.get(StudentField.EMAIL.getAttribute()),
+                        gender == null || gender instanceof Gender ? (Gender) gender : Gender.valueOf(gender.toString()),
+                        // projections never carry the version
+                        null);
+            }
+            throw new IllegalArgumentException("Not a student: " + student);
+        }
+
+        int size() {
+            int size = 0;
+            if (id != null) {
+                size += CodedOutputStream.computeInt64Size(ID, id);
+            }
+            if (name != null) {
+                size += CodedOutputStream.computeStringSize(NAME, name);
+            }
+            if (email != null) {
+                size += CodedOutputStream.computeStringSize(EMAIL, email);
+            }
+            if (gender != null) {
+                size += CodedOutputStream.computeEnumSize(GENDER, number(gender));
+            }
+            if (version != null) {
+                size += CodedOutputStream.computeInt64Size(VERSION, version);
+            }
+            return size;
+        }
+
+        void writeTo(CodedOutputStream out) throws IOException {
+            if (id != null) {
+                out.writeInt64(ID, id);
+            }
+            if (name != null) {
+                out.writeString(NAME, name);
+            }
+            if (email != null) {
+                out.writeString(EMAIL, email);
+            }
+            if (gender != null) {
+                out.writeEnum(GENDER, number(gender));
+            }
+            if (version != null) {
+                out.writeInt64(VERSION, version);
+            }
+        }
+
+        // 0 is GENDER_UNSPECIFIED, the default value of proto3 enums
+        private static int number(Gender gender) {
+            return gender.ordinal() + 1;
+        }
+    }
+}
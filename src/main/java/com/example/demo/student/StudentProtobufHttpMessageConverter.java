@@ -0,0 +1,102 @@
+package com.example.demo.student;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the student responses as application/x-protobuf, see StudentProtobuf.
+ * Only responses are supported, request bodies stay JSON (or CBOR, Smile).
+ *
+ * The listings are declared as List<?> because they return either students
+ * or field maps, so any List<?> is accepted here and its elements are
+ * checked while writing.
+ */
+public class StudentProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public StudentProtobufHttpMessageConverter() {
+        super(StudentProtobuf.MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Student.class.isAssignableFrom(clazz) || List.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return isStudentType(type != null ? type : clazz) && canWrite(mediaType);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        try {
+            if (body instanceof Student) {
+                StudentProtobuf.write((Student) body, outputMessage.getBody());
+            } else {
+                StudentProtobuf.writeList((List<?>) body, outputMessage.getBody());
+            }
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotWritableException("Could not write protobuf: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+            throws HttpMessageNotReadableException {
+        throw new HttpMessageNotReadableException("Protobuf request bodies are not supported", inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage)
+            throws HttpMessageNotReadableException {
+        throw new HttpMessageNotReadableException("Protobuf request bodies are not supported", inputMessage);
+    }
+
+    /**
+     * Student, or a List of Student, of field maps or of unknown elements:
+     * Spring resolves the List<?> of the listings to List<Object>.
+     */
+    private static boolean isStudentType(Type type) {
+        if (type instanceof Class) {
+            return Student.class.isAssignableFrom((Class<?>) type);
+        }
+        if (!(type instanceof ParameterizedType)) {
+            return false;
+        }
+        ParameterizedType parameterized = (ParameterizedType) type;
+        if (!(parameterized.getRawType() instanceof Class)
+                || !List.class.isAssignableFrom((Class<?>) parameterized.getRawType())) {
+            return false;
+        }
+        Type element = parameterized.getActualTypeArguments()[0];
+        if (element instanceof WildcardType) {
+            return true;
+        }
+        if (element instanceof ParameterizedType) {
+            element = ((ParameterizedType) element).getRawType();
+        }
+        return element == Student.class || element == Map.class || element == Object.class;
+    }
+}
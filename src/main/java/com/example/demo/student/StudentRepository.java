@@ -1,11 +1,20 @@
 package com.example.demo.student;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
 @Repository
-public interface StudentRepository extends JpaRepository<Student, Long> {
+public interface StudentRepository extends JpaRepository<Student, Long>, StudentRepositoryCustom {
     @Query("" +
             "SELECT CASE WHEN COUNT(s) > 0 THEN " +
             "TRUE ELSE FALSE END " +
@@ -13,4 +22,66 @@ public interface StudentRepository extends JpaRepository<Student, Long> {
             "WHERE s.email = ?1"
     )
     Boolean selectExistsEmail(String email);
+
+    @Query("" +
+            "SELECT s.email " +
+            "FROM Student s " +
+            "WHERE s.email IN :emails"
+    )
+    Set<String> selectTakenEmails(@Param("emails") Collection<String> emails);
+
+    // keyset page of the students changed after (revision, id), up to maxRevision
+    @Query("" +
+            "SELECT s FROM Student s " +
+            "WHERE (s.revision > :revision OR (s.revision = :revision AND s.id > :id)) " +
+            "AND s.revision <= :maxRevision " +
+            "ORDER BY s.revision, s.id"
+    )
+    List<Student> findChangedAfter(@Param("revision") long revision,
+                                   @Param("id") long id,
+                                   @Param("maxRevision") long maxRevision,
+                                   Pageable pageable);
+
+    @Query("SELECT MAX(s.revision) FROM Student s")
+    Long findMaxRevision();
+
+    // the clock of the database, see StudentSyncService#alignRevisionClock
+    @Query(value = "SELECT EXTRACT(EPOCH FROM CURRENT_TIMESTAMP) * 1000", nativeQuery = true)
+    Double findDatabaseTimeMillis();
+
+    /**
+     * Streams every student from a database cursor, the fetch size bounds
+     * how many rows the JDBC driver holds at once.
+     * Must be consumed and closed inside a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = org.hibernate.annotations.QueryHints.FETCH_SIZE, value = "1000"),
+            @QueryHint(name = org.hibernate.annotations.QueryHints.READ_ONLY, value = "true")
+    })
+    @Query("SELECT s FROM Student s ORDER BY s.id")
+    Stream<Student> streamAll();
+
+    // feeds the email index, see streamAll
+    @QueryHints({
+            @QueryHint(name = org.hibernate.annotations.QueryHints.FETCH_SIZE, value = "1000"),
+            @QueryHint(name = org.hibernate.annotations.QueryHints.READ_ONLY, value = "true")
+    })
+    @Query("SELECT s.email FROM Student s")
+    Stream<String> streamEmails();
+
+    // rows of [gender, count], reconcile the statistics
+    @Query("" +
+            "SELECT s.gender, COUNT(s) " +
+            "FROM Student s " +
+            "GROUP BY s.gender"
+    )
+    List<Object[]> countByGender();
+
+    // rows of [domain, count], see StudentStatsService#emailDomain
+    @Query("" +
+            "SELECT LOWER(SUBSTRING(s.email, LOCATE('@', s.email) + 1)), COUNT(s) " +
+            "FROM Student s " +
+            "GROUP BY LOWER(SUBSTRING(s.email, LOCATE('@', s.email) + 1))"
+    )
+    List<Object[]> countByEmailDomain();
 }
@@ -0,0 +1,60 @@
+package com.example.demo.student;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Queries of {@link StudentRepository} that are built with the Criteria API
+ * because their shape depends on the request.
+ */
+public interface StudentRepositoryCustom {
+
+    /**
+     * Returns up to {@code size + 1} students positioned after the request cursor;
+     * the extra row only tells the caller whether a next page exists.
+     */
+    List<Student> findPage(StudentPageRequest pageRequest);
+
+    /**
+     * Like {@link #findPage}, restricted to the students matching the criteria.
+     * The query is cancelled when it runs longer than the search timeout.
+     */
+    List<Student> search(StudentSearchCriteria criteria, StudentPageRequest pageRequest);
+
+    /**
+     * Like {@link #findPage}, but selects only the given fields and the sort key
+     * into maps keyed by attribute name. No entity is instantiated or managed.
+     */
+    List<Map<String, Object>> findPageFields(StudentPageRequest pageRequest, Set<StudentField> fields);
+
+    /**
+     * Like {@link #search}, selecting only the given fields and the sort key.
+     */
+    List<Map<String, Object>> searchFields(StudentSearchCriteria criteria,
+                                           StudentPageRequest pageRequest,
+                                           Set<StudentField> fields);
+
+    /**
+     * Applies the non-null fields of the patch with a single UPDATE, without loading
+     * the student, and increments its version.
+     * When expectedVersion is not null, the student is only updated if its
+     * version still matches.
+     * On PostgreSQL the UPDATE also returns the email and gender it replaced,
+     * elsewhere they are null.
+     *
+     * @return the row of [id, email, gender] before the update, none when nothing was updated
+     */
+    List<Object[]> patch(Long studentId, StudentPatch patch, Long expectedVersion);
+
+    /**
+     * Deletes the students with a single DELETE, without loading them.
+     * On PostgreSQL the DELETE also returns their email and gender. Elsewhere
+     * they are null, and deleting several students locks and reads the ids
+     * that exist first.
+     *
+     * @return rows of [id, email, gender] of the deleted students
+     */
+    List<Object[]> deleteStudents(Collection<Long> studentIds);
+}
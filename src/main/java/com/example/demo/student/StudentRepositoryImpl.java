@@ -0,0 +1,343 @@
+package com.example.demo.student;
+
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.Tuple;
+import javax.persistence.TupleElement;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class StudentRepositoryImpl implements StudentRepositoryCustom {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${student.search.timeout-ms:2000}")
+    private int searchTimeoutMillis;
+
+    @Override
+    public List<Student> findPage(StudentPageRequest pageRequest) {
+        return createPageQuery(null, pageRequest).getResultList();
+    }
+
+    @Override
+    public List<Student> search(StudentSearchCriteria criteria, StudentPageRequest pageRequest) {
+        return createPageQuery(criteria, pageRequest)
+                // an unselective search must not hold a connection for long
+                .setHint(QueryHints.TIMEOUT_JPA, searchTimeoutMillis)
+                .getResultList();
+    }
+
+    @Override
+    public List<Map<String, Object>> findPageFields(StudentPageRequest pageRequest, Set<StudentField> fields) {
+        return toMaps(createFieldsQuery(null, pageRequest, fields).getResultList());
+    }
+
+    @Override
+    public List<Map<String, Object>> searchFields(StudentSearchCriteria criteria,
+                                                  StudentPageRequest pageRequest,
+                                                  Set<StudentField> fields) {
+        return toMaps(createFieldsQuery(criteria, pageRequest, fields)
+                .setHint(QueryHints.TIMEOUT_JPA, searchTimeoutMillis)
+                .getResultList());
+    }
+
+    private TypedQuery<Student> createPageQuery(StudentSearchCriteria criteria,
+                                                StudentPageRequest pageRequest) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Student> query = cb.createQuery(Student.class);
+        Root<Student> student = query.from(Student.class);
+        restrictToPage(cb, query, student, criteria, pageRequest);
+
+        return entityManager.createQuery(query)
+                .setMaxResults(pageRequest.getSize() + 1)
+                // the listing never modifies what it reads, so skip the dirty-checking snapshots
+                .setHint(QueryHints.READ_ONLY, true);
+    }
+
+    /**
+     * Scalar columns only: Hibernate neither instantiates entities nor keeps them
+     * in the persistence context, and the unselected columns are not even read.
+     */
+    private TypedQuery<Tuple> createFieldsQuery(StudentSearchCriteria criteria,
+                                                StudentPageRequest pageRequest,
+                                                Set<StudentField> fields) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Student> student = query.from(Student.class);
+
+        // the sort key is needed for the cursor of the next page
+        Set<String> attributes = new LinkedHashSet<>();
+        fields.forEach(field -> attributes.add(field.getAttribute()));
+        attributes.add(pageRequest.getSortKey().getAttribute());
+        List<Selection<?>> selections = new ArrayList<>(attributes.size());
+        attributes.forEach(attribute -> selections.add(student.get(attribute).alias(attribute)));
+        query.multiselect(selections);
+        restrictToPage(cb, query, student, criteria, pageRequest);
+
+        return entityManager.createQuery(query)
+                .setMaxResults(pageRequest.getSize() + 1);
+    }
+
+    private static List<Map<String, Object>> toMaps(List<Tuple> tuples) {
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (TupleElement<?> element : tuple.getElements()) {
+                row.put(element.getAlias(), tuple.get(element));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Filters by the criteria, if any, and applies the keyset position and order of the page.
+     */
+    private static void restrictToPage(CriteriaBuilder cb,
+                                       CriteriaQuery<?> query,
+                                       Root<Student> student,
+                                       StudentSearchCriteria criteria,
+                                       StudentPageRequest pageRequest) {
+        boolean ascending = pageRequest.getDirection() == Sort.Direction.ASC;
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (criteria != null) {
+            predicates.addAll(matching(cb, student, criteria));
+        }
+        StudentCursor cursor = pageRequest.getCursor();
+        if (cursor != null) {
+            predicates.add(after(cb, student, pageRequest.getSortKey(), cursor, ascending));
+        }
+        query.where(predicates.toArray(new Predicate[0]));
+
+        Path<Long> id = student.get("id");
+        if (pageRequest.getSortKey() == StudentSortKey.ID) {
+            query.orderBy(ascending ? cb.asc(id) : cb.desc(id));
+        } else {
+            Path<String> key = student.get(pageRequest.getSortKey().getAttribute());
+            query.orderBy(
+                    ascending ? cb.asc(key) : cb.desc(key),
+                    ascending ? cb.asc(id) : cb.desc(id));
+        }
+    }
+
+    @Override
+    public List<Object[]> patch(Long studentId, StudentPatch patch, Long expectedVersion) {
+        if (isPostgres()) {
+            return patchReturning(studentId, patch, expectedVersion);
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Student> update = cb.createCriteriaUpdate(Student.class);
+        Root<Student> student = update.from(Student.class);
+
+        // only the supplied columns appear in the SET clause
+        if (patch.getName() != null) {
+            update.set(student.<String>get("name"), patch.getName());
+        }
+        if (patch.getEmail() != null) {
+            update.set(student.<String>get("email"), patch.getEmail());
+        }
+        if (patch.getGender() != null) {
+            update.set(student.<Gender>get("gender"), patch.getGender());
+        }
+        Path<Long> version = student.get("version");
+        update.set(version, cb.sum(version, 1L));
+        // bypasses the entity callbacks
+        update.set(student.<Long>get("revision"), StudentRevisionClock.next());
+
+        Predicate byId = cb.equal(student.get("id"), studentId);
+        update.where(expectedVersion == null
+                ? byId
+                : cb.and(byId, cb.equal(version, expectedVersion)));
+
+        return entityManager.createQuery(update).executeUpdate() == 0
+                ? List.of()
+                : List.<Object[]>of(new Object[]{studentId, null, null});
+    }
+
+    /**
+     * RETURNING only sees the new row, so the UPDATE joins the row as it was,
+     * locked by the same statement.
+     */
+    private List<Object[]> patchReturning(Long studentId, StudentPatch patch, Long expectedVersion) {
+        StringBuilder sql = new StringBuilder("UPDATE student s SET ");
+        if (patch.getName() != null) {
+            sql.append("name = :name, ");
+        }
+        if (patch.getEmail() != null) {
+            sql.append("email = :email, ");
+        }
+        if (patch.getGender() != null) {
+            sql.append("gender = :gender, ");
+        }
+        sql.append("version = s.version + 1, revision = :revision ")
+                .append("FROM (SELECT id, email, gender FROM student WHERE id = :id FOR UPDATE) previous ")
+                .append("WHERE s.id = previous.id ");
+        if (expectedVersion != null) {
+            sql.append("AND s.version = :version ");
+        }
+        sql.append("RETURNING previous.id, previous.email, previous.gender");
+
+        Query update = entityManager.createNativeQuery(sql.toString())
+                .setParameter("revision", StudentRevisionClock.next())
+                .setParameter("id", studentId);
+        if (patch.getName() != null) {
+            update.setParameter("name", patch.getName());
+        }
+        if (patch.getEmail() != null) {
+            update.setParameter("email", patch.getEmail());
+        }
+        if (patch.getGender() != null) {
+            update.setParameter("gender", patch.getGender().name());
+        }
+        if (expectedVersion != null) {
+            update.setParameter("version", expectedVersion);
+        }
+        return previousRows(update);
+    }
+
+    @Override
+    public List<Object[]> deleteStudents(Collection<Long> studentIds) {
+        if (isPostgres()) {
+            return previousRows(entityManager.createNativeQuery("" +
+                            "DELETE FROM student " +
+                            "WHERE id IN (:ids) " +
+                            "RETURNING id, email, gender")
+                    .setParameter("ids", studentIds));
+        }
+
+        Collection<Long> existingIds = studentIds;
+        if (studentIds.size() > 1) {
+            // the ids that exist, locked so that a concurrent deletion of the
+            // same students waits and then finds none of them
+            existingIds = entityManager.createQuery("" +
+                            "SELECT s.id " +
+                            "FROM Student s " +
+                            "WHERE s.id IN :ids", Long.class)
+                    .setParameter("ids", studentIds)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getResultList();
+            if (existingIds.isEmpty()) {
+                return List.of();
+            }
+        }
+        int deleted = entityManager.createQuery("" +
+                        "DELETE FROM Student s " +
+                        "WHERE s.id IN :ids")
+                .setParameter("ids", existingIds)
+                .executeUpdate();
+        // a single id was deleted if the row count says so
+        if (deleted == 0) {
+            return List.of();
+        }
+        List<Object[]> rows = new ArrayList<>(existingIds.size());
+        existingIds.forEach(id -> rows.add(new Object[]{id, null, null}));
+        return rows;
+    }
+
+    // rows of [id, email, gender] from the native columns
+    @SuppressWarnings("unchecked")
+    private static List<Object[]> previousRows(Query query) {
+        List<Object[]> rows = query.getResultList();
+        for (Object[] row : rows) {
+            row[0] = ((Number) row[0]).longValue();
+            row[2] = Gender.valueOf((String) row[2]);
+        }
+        return rows;
+    }
+
+    // H2 in the tests has no RETURNING
+    private boolean isPostgres() {
+        return entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices()
+                .getDialect() instanceof PostgreSQL81Dialect;
+    }
+
+    /**
+     * Case-insensitive LIKE predicates on lower(column), matching the
+     * functional and trigram indexes of the V2 migration.
+     */
+    private static List<Predicate> matching(CriteriaBuilder cb,
+                                            Root<Student> student,
+                                            StudentSearchCriteria criteria) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (criteria.getName() != null) {
+            String name = escapeLike(criteria.getName());
+            String pattern = criteria.getNameMatch() == StudentSearchCriteria.NameMatch.PREFIX
+                    ? name + "%"
+                    : "%" + name + "%";
+            predicates.add(cb.like(cb.lower(student.get("name")), pattern, LIKE_ESCAPE));
+        }
+        if (criteria.getEmailDomain() != null) {
+            predicates.add(cb.like(cb.lower(student.get("email")),
+                    "%@" + escapeLike(criteria.getEmailDomain()), LIKE_ESCAPE));
+        }
+        if (criteria.getGender() != null) {
+            predicates.add(cb.equal(student.get("gender"), criteria.getGender()));
+        }
+        return predicates;
+    }
+
+    // the user's text is matched literally, % and _ included
+    static String escapeLike(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Keyset predicate: (key, id) > (lastValue, lastId) for ascending order,
+     * (key, id) < (lastValue, lastId) for descending order.
+     */
+    private static Predicate after(CriteriaBuilder cb,
+                                   Root<Student> student,
+                                   StudentSortKey sortKey,
+                                   StudentCursor cursor,
+                                   boolean ascending) {
+        Path<Long> id = student.get("id");
+        Predicate idAfter = ascending
+                ? cb.greaterThan(id, cursor.getLastId())
+                : cb.lessThan(id, cursor.getLastId());
+        if (sortKey == StudentSortKey.ID) {
+            return idAfter;
+        }
+
+        Path<String> key = student.get(sortKey.getAttribute());
+        Predicate keyAfter = ascending
+                ? cb.greaterThan(key, cursor.getLastValue())
+                : cb.lessThan(key, cursor.getLastValue());
+        return cb.or(keyAfter, cb.and(cb.equal(key, cursor.getLastValue()), idAfter));
+    }
+}
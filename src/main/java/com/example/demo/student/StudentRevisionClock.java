@@ -0,0 +1,107 @@
+package com.example.demo.student;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out the revisions of the student changes: a hybrid logical clock,
+ * the milliseconds of the wall clock shifted left, plus a counter for the
+ * changes of the same millisecond. The revisions of an instance always
+ * increase, even when its clock goes back, and stay close to the wall clock,
+ * so that a revision can also be derived from an instant (see lowestAt).
+ *
+ * The wall clock is shifted by its offset to the clock of the primary
+ * database, measured by StudentSyncService#alignRevisionClock, so that the
+ * instances of a cluster hand out revisions on the same time base even when
+ * their own clocks disagree.
+ *
+ * Shared by the whole application, as the entity callbacks of Student cannot
+ * be given a bean.
+ */
+public final class StudentRevisionClock {
+
+    // up to 65536 changes per millisecond before the clock runs ahead of the time
+    static final int COUNTER_BITS = 16;
+
+    private static final AlignedClock ALIGNED = new AlignedClock(Clock.systemUTC());
+    private static final StudentRevisionClock INSTANCE = new StudentRevisionClock(ALIGNED);
+
+    private final Clock clock;
+    private final AtomicLong last = new AtomicLong();
+
+    StudentRevisionClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    public static long next() {
+        return INSTANCE.tick();
+    }
+
+    /**
+     * Makes the next revisions higher than one handed out elsewhere, e.g. the
+     * highest revision in the database when a clock runs behind the others.
+     */
+    public static void observe(long revision) {
+        INSTANCE.witness(revision);
+    }
+
+    /**
+     * The time the revisions follow, to compare with them: the wall clock
+     * shifted by its offset to the clock of the primary database.
+     */
+    public static Clock clock() {
+        return ALIGNED;
+    }
+
+    /**
+     * @param offset how far the clock of the primary database is ahead of the wall clock
+     */
+    public static void align(Duration offset) {
+        ALIGNED.offset = offset;
+    }
+
+    /**
+     * @return a revision lower than any handed out at or after the instant
+     */
+    public static long lowestAt(Instant instant) {
+        return instant.toEpochMilli() << COUNTER_BITS;
+    }
+
+    long tick() {
+        long now = lowestAt(clock.instant());
+        return last.accumulateAndGet(now, (previous, time) -> Math.max(previous + 1, time));
+    }
+
+    void witness(long revision) {
+        last.accumulateAndGet(revision, Math::max);
+    }
+
+    static final class AlignedClock extends Clock {
+
+        private final Clock wallClock;
+        volatile Duration offset = Duration.ZERO;
+
+        AlignedClock(Clock wallClock) {
+            this.wallClock = wallClock;
+        }
+
+        @Override
+        public Instant instant() {
+            return wallClock.instant().plus(offset);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return wallClock.getZone();
+        }
+
+        // a snapshot of the current offset
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return Clock.offset(wallClock.withZone(zone), offset);
+        }
+    }
+}
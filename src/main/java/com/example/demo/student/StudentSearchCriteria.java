@@ -0,0 +1,69 @@
+package com.example.demo.student;
+
+import com.example.demo.student.exception.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Locale;
+
+/**
+ * Filters of the student search, every supplied filter must match.
+ * Names and email domains are matched case-insensitively.
+ */
+@Getter
+@AllArgsConstructor
+public class StudentSearchCriteria {
+
+    // shorter substrings cannot use the trigram indexes and end up scanning the table
+    public static final int MIN_CONTAINS_LENGTH = 3;
+
+    public enum NameMatch {
+        PREFIX,
+        CONTAINS
+    }
+
+    // lower-cased, null when names are not filtered
+    private final String name;
+    private final NameMatch nameMatch;
+    // lower-cased and without the @, null when emails are not filtered
+    private final String emailDomain;
+    // null when genders are not filtered
+    private final Gender gender;
+
+    public static StudentSearchCriteria of(String name, String match, String emailDomain, String gender) {
+        NameMatch nameMatch = parse(NameMatch.class, match, "name match");
+        String nameFilter = normalize(name);
+        if (nameFilter != null && nameMatch == NameMatch.CONTAINS
+                && nameFilter.length() < MIN_CONTAINS_LENGTH) {
+            throw new BadRequestException(
+                    "Searching names containing a text needs at least "
+                            + MIN_CONTAINS_LENGTH + " characters, search by prefix instead.");
+        }
+
+        String domainFilter = normalize(emailDomain);
+        if (domainFilter != null && domainFilter.startsWith("@")) {
+            domainFilter = normalize(domainFilter.substring(1));
+        }
+
+        Gender genderFilter = normalize(gender) == null ? null : parse(Gender.class, gender, "gender");
+        if (nameFilter == null && domainFilter == null && genderFilter == null) {
+            throw new BadRequestException("At least one of name, emailDomain and gender is required.");
+        }
+        return new StudentSearchCriteria(nameFilter, nameMatch, domainFilter, genderFilter);
+    }
+
+    private static String normalize(String value) {
+        return value == null || value.isBlank() ? null : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> type, String value, String parameter) {
+        if (value != null) {
+            for (E constant : type.getEnumConstants()) {
+                if (constant.name().equalsIgnoreCase(value.trim())) {
+                    return constant;
+                }
+            }
+        }
+        throw new BadRequestException("Unsupported " + parameter + ": " + value);
+    }
+}
@@ -1,43 +1,343 @@
 package com.example.demo.student;
 
 import com.example.demo.student.exception.BadRequestException;
+import com.example.demo.student.exception.PreconditionFailedException;
+import com.example.demo.student.exception.SearchTimeoutException;
 import com.example.demo.student.exception.StudentNotFoundException;
+import io.micrometer.core.annotation.Timed;
 import lombok.AllArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @AllArgsConstructor
 @Service
+@Timed(StudentService.METRIC)
 public class StudentService {
 
+    // timer of every public method, see MetricsConfig
+    public static final String METRIC = "student.service";
+
+    public static final int MAX_BATCH_SIZE = 1000;
+    // the first attempt trusts the email index, the next ones look every email up
+    static final int MAX_BATCH_ATTEMPTS = 3;
+    // SQL standard state of unique constraint violations, used by PostgreSQL and H2
+    private static final String UNIQUE_VIOLATION_SQL_STATE = "23505";
+
     private final StudentRepository studentRepository;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StudentEmailIndex studentEmailIndex;
+    private final StudentTombstoneRepository studentTombstoneRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Transactional(readOnly = true)
+    public StudentPage<Student> getStudents(StudentPageRequest pageRequest) {
+        return toPage(studentRepository.findPage(pageRequest), pageRequest,
+                student -> StudentCursor.after(pageRequest.getSortKey(), student));
+    }
+
+    @Transactional(readOnly = true)
+    public StudentPage<Map<String, Object>> getStudentFields(StudentPageRequest pageRequest,
+                                                             Set<StudentField> fields) {
+        return toFieldsPage(studentRepository.findPageFields(pageRequest, fields), pageRequest, fields);
+    }
+
+    @Transactional(readOnly = true)
+    public StudentPage<Student> searchStudents(StudentSearchCriteria criteria, StudentPageRequest pageRequest) {
+        try {
+            return toPage(studentRepository.search(criteria, pageRequest), pageRequest,
+                    student -> StudentCursor.after(pageRequest.getSortKey(), student));
+        } catch (QueryTimeoutException e) {
+            throw new SearchTimeoutException("The search took too long, try narrowing it down");
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public StudentPage<Map<String, Object>> searchStudentFields(StudentSearchCriteria criteria,
+                                                                StudentPageRequest pageRequest,
+                                                                Set<StudentField> fields) {
+        try {
+            return toFieldsPage(studentRepository.searchFields(criteria, pageRequest, fields),
+                    pageRequest, fields);
+        } catch (QueryTimeoutException e) {
+            throw new SearchTimeoutException("The search took too long, try narrowing it down");
+        }
+    }
+
+    private static StudentPage<Map<String, Object>> toFieldsPage(List<Map<String, Object>> rows,
+                                                                 StudentPageRequest pageRequest,
+                                                                 Set<StudentField> fields) {
+        String sortAttribute = pageRequest.getSortKey().getAttribute();
+        StudentPage<Map<String, Object>> page = toPage(rows, pageRequest,
+                row -> StudentCursor.after(
+                        pageRequest.getSortKey(), (Long) row.get("id"), row.get(sortAttribute)));
 
-    public List<Student> getAllStudents() {
-        return  studentRepository.findAll();
+        // the sort key was only selected for the cursor
+        if (fields.stream().noneMatch(field -> field.getAttribute().equals(sortAttribute))) {
+            page.getContent().forEach(row -> row.remove(sortAttribute));
+        }
+        return page;
     }
 
+    private static <T> StudentPage<T> toPage(List<T> rows,
+                                             StudentPageRequest pageRequest,
+                                             Function<T, StudentCursor> cursorAfter) {
+        if (rows.size() <= pageRequest.getSize()) {
+            return new StudentPage<>(rows, null);
+        }
+
+        // one row more than requested came back, so there is a next page
+        List<T> content = rows.subList(0, pageRequest.getSize());
+        T last = content.get(content.size() - 1);
+        return new StudentPage<>(content, cursorAfter.apply(last).encode());
+    }
+
+    /**
+     * A single INSERT: instead of checking the email first, rely on its
+     * unique constraint, which is atomic and saves a round-trip.
+     */
     public void addStudent(Student student) {
-        Boolean existsEmail = studentRepository
-                .selectExistsEmail(student.getEmail());
-        if (existsEmail) {
+        try {
+            studentRepository.saveAndFlush(student);
+            eventPublisher.publishEvent(StudentChangeEvent.created(student));
+        } catch (DataIntegrityViolationException e) {
+            if (isUniqueViolation(e)) {
+                throw new BadRequestException(
+                        "Email " + student.getEmail() + " is taken");
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Creates the valid students of the batch and reports the outcome of each one.
+     * Email uniqueness is checked for the whole batch with a single query, skipped
+     * when the email index tells that none of the emails is taken, and the
+     * inserts are flushed as JDBC batches.
+     *
+     * The index only knows the emails this instance registered since its last
+     * rebuild, and an email can be registered between the check and the inserts.
+     * Either way the unique constraint rolls the inserts back: the emails are then
+     * all looked up in the database and the batch is inserted again without the
+     * taken ones, so that they are reported as DUPLICATE like the others.
+     */
+    public List<StudentBatchResult> addStudents(List<Student> students) {
+        if (students.size() > MAX_BATCH_SIZE) {
             throw new BadRequestException(
-                    "Email " + student.getEmail() + " is taken");
+                    "A batch may contain at most " + MAX_BATCH_SIZE + " students");
+        }
+
+        StudentBatchResult[] results = new StudentBatchResult[students.size()];
+        // email -> index of the first student of the batch using it
+        Map<String, Integer> candidates = new LinkedHashMap<>();
+        for (int i = 0; i < students.size(); i++) {
+            Student student = students.get(i);
+            // a null in the JSON array, the validator would reject it with an exception
+            if (student == null) {
+                results[i] = StudentBatchResult.invalid(i, "Student must not be null");
+                continue;
+            }
+            Set<ConstraintViolation<Student>> violations = validator.validate(student);
+            if (!violations.isEmpty()) {
+                results[i] = StudentBatchResult.invalid(i, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .collect(Collectors.joining("\n")));
+            } else if (candidates.putIfAbsent(student.getEmail(), i) != null) {
+                results[i] = StudentBatchResult.duplicate(i,
+                        "Email " + student.getEmail() + " is repeated in the batch");
+            }
         }
 
-        studentRepository.save(student);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int attempt = 1; ; attempt++) {
+            // only the emails the index cannot rule out are looked up, on the first attempt
+            boolean trustIndex = attempt == 1;
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        insertCandidates(students, candidates, results, trustIndex));
+                break;
+            } catch (DataIntegrityViolationException e) {
+                if (!isUniqueViolation(e) || attempt == MAX_BATCH_ATTEMPTS) {
+                    throw e;
+                }
+                // the rolled back students are new again, and their results undecided
+                for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+                    int index = candidate.getValue();
+                    if (results[index] == null || results[index].getStatus() == StudentBatchResult.Status.CREATED) {
+                        results[index] = null;
+                        students.get(index).resetIdentity();
+                    }
+                }
+            }
+        }
+        return Arrays.asList(results);
     }
 
+    private void insertCandidates(List<Student> students,
+                                  Map<String, Integer> candidates,
+                                  StudentBatchResult[] results,
+                                  boolean trustIndex) {
+        List<String> maybeTakenEmails = candidates.entrySet().stream()
+                .filter(candidate -> results[candidate.getValue()] == null)
+                .map(Map.Entry::getKey)
+                .filter(email -> !trustIndex || studentEmailIndex.mightContain(email))
+                .collect(Collectors.toList());
+        Set<String> takenEmails = maybeTakenEmails.isEmpty()
+                ? Set.of()
+                : studentRepository.selectTakenEmails(maybeTakenEmails);
+        List<Student> newStudents = new ArrayList<>(candidates.size());
+        for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+            int index = candidate.getValue();
+            if (results[index] != null) {
+                continue;
+            }
+            if (takenEmails.contains(candidate.getKey())) {
+                results[index] = StudentBatchResult.duplicate(index,
+                        "Email " + candidate.getKey() + " is taken");
+            } else {
+                newStudents.add(students.get(index));
+            }
+        }
+
+        studentRepository.saveAll(newStudents);
+        // a unique violation surfaces here, inside the transaction
+        studentRepository.flush();
+        for (Student student : newStudents) {
+            int index = candidates.get(student.getEmail());
+            results[index] = StudentBatchResult.created(index, student.getId());
+            // only delivered to the listeners if the transaction commits
+            eventPublisher.publishEvent(StudentChangeEvent.created(student));
+        }
+    }
+
+    /**
+     * A single DELETE, the affected rows tell whether the student existed and,
+     * on PostgreSQL, the email and gender the listeners are told about.
+     * The deletion is remembered by a tombstone, for the clients syncing the changes.
+     */
+    @Transactional
+    @CacheEvict(cacheNames = StudentCacheConfig.STUDENT_CACHE, key = "#studentId")
     public void deleteStudent(Long studentId) {
-        if (!studentRepository.existsById(studentId)) {
+        List<Object[]> deleted = studentRepository.deleteStudents(List.of(studentId));
+        if (deleted.isEmpty()) {
             throw new StudentNotFoundException(
                     "Student with id " + studentId + " does not exist");
         }
+        studentTombstoneRepository.save(
+                new StudentTombstone(studentId, StudentRevisionClock.next(), Instant.now()));
+        eventPublisher.publishEvent(deleted(deleted.get(0)));
+    }
+
+    /**
+     * Deletes many students with one statement, ids that do not exist are ignored.
+     *
+     * @return the number of deleted students
+     */
+    @Transactional
+    // rare enough to simply drop the whole cache
+    @CacheEvict(cacheNames = StudentCacheConfig.STUDENT_CACHE, allEntries = true)
+    public int deleteStudents(Collection<Long> studentIds) {
+        if (studentIds.isEmpty()) {
+            throw new BadRequestException("No student id to delete");
+        }
+        if (studentIds.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException(
+                    "At most " + MAX_BATCH_SIZE + " students may be deleted at once");
+        }
+
+        // the tombstones need the ids that were deleted
+        List<Object[]> deleted = studentRepository.deleteStudents(studentIds);
+        if (deleted.isEmpty()) {
+            return 0;
+        }
+        long revision = StudentRevisionClock.next();
+        Instant deletedAt = Instant.now();
+        studentTombstoneRepository.saveAll(deleted.stream()
+                .map(row -> new StudentTombstone((Long) row[0], revision, deletedAt))
+                .collect(Collectors.toList()));
+        deleted.forEach(row -> eventPublisher.publishEvent(deleted(row)));
+        return deleted.size();
+    }
+
+    // from a row of StudentRepository#deleteStudents
+    private static StudentChangeEvent deleted(Object[] row) {
+        return StudentChangeEvent.deleted((Long) row[0], (String) row[1], (Gender) row[2]);
+    }
 
-        studentRepository.deleteById(studentId);
+    // read-write, so that the student is read from the primary: the read-only
+    // findById could go to a lagging replica and put a stale student in the cache
+    @Transactional
+    @Cacheable(cacheNames = StudentCacheConfig.STUDENT_CACHE, key = "#studentId")
+    public Student getStudent(Long studentId) {
+        return studentRepository.findById(studentId)
+                .orElseThrow(() -> new StudentNotFoundException(
+                        "Student with id " + studentId + " does not exist"));
     }
 
+    /**
+     * Applies a partial update with one UPDATE statement and no prior SELECT.
+     * The existence of the student is only checked when nothing was updated,
+     * to tell a missing student from a stale version.
+     *
+     * @return the new version of the student, or null when no version was expected
+     */
+    @Transactional
+    @CacheEvict(cacheNames = StudentCacheConfig.STUDENT_CACHE, key = "#studentId")
+    public Long patchStudent(Long studentId, StudentPatch patch, Long expectedVersion) {
+        if (!patch.hasChanges()) {
+            throw new BadRequestException("The patch does not change any field");
+        }
+
+        List<Object[]> updated;
+        try {
+            updated = studentRepository.patch(studentId, patch, expectedVersion);
+        } catch (DataIntegrityViolationException e) {
+            if (isUniqueViolation(e)) {
+                throw new BadRequestException(
+                        "Email " + patch.getEmail() + " is taken");
+            }
+            throw e;
+        }
+
+        if (updated.isEmpty()) {
+            if (studentRepository.existsById(studentId)) {
+                throw new PreconditionFailedException(
+                        "Student with id " + studentId + " was modified concurrently");
+            }
+            throw new StudentNotFoundException(
+                    "Student with id " + studentId + " does not exist");
+        }
+        // the replaced email and gender, when the database returned them
+        Object[] previous = updated.get(0);
+        eventPublisher.publishEvent(StudentChangeEvent.patched(studentId, patch,
+                (String) previous[1], (Gender) previous[2]));
+        return expectedVersion == null ? null : expectedVersion + 1;
+    }
+
+    @Transactional
+    @CacheEvict(cacheNames = StudentCacheConfig.STUDENT_CACHE, key = "#studentId")
     public void updateStudent(Long studentId, Student student) {
         Optional<Student> optionalStudent = studentRepository.findById(studentId);
         if (optionalStudent.isEmpty()) {
@@ -46,10 +346,29 @@ public class StudentService {
         }
 
         Student updatedStudent = optionalStudent.get();
+        // the listeners of the change, e.g. the statistics, need the old values
+        Student previous = new Student(updatedStudent.getId(), updatedStudent.getName(),
+                updatedStudent.getEmail(), updatedStudent.getGender(), updatedStudent.getVersion());
         updatedStudent.setName(student.getName());
         updatedStudent.setEmail(student.getEmail());
         updatedStudent.setGender(student.getGender());
 
         studentRepository.save(updatedStudent);
+        eventPublisher.publishEvent(StudentChangeEvent.updated(studentId, previous, updatedStudent));
+    }
+
+    /**
+     * The id comes from a sequence, so on the student table the only
+     * unique constraint that can be violated is the one on the email.
+     * The cause chain is searched, the importer's COPY wraps the SQLException.
+     */
+    public static boolean isUniqueViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException
+                    && UNIQUE_VIOLATION_SQL_STATE.equals(((SQLException) cause).getSQLState())) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -0,0 +1,45 @@
+package com.example.demo.student;
+
+import com.example.demo.student.exception.BadRequestException;
+
+/**
+ * Sort keys accepted by the student listing.
+ * Every key is combined with the id as a tie-breaker, so the (key, id) pair
+ * is unique and can be used as a keyset cursor. Each pair is backed by an
+ * index declared on {@link Student}.
+ */
+public enum StudentSortKey {
+    ID("id"),
+    NAME("name"),
+    EMAIL("email");
+
+    private final String attribute;
+
+    StudentSortKey(String attribute) {
+        this.attribute = attribute;
+    }
+
+    public String getAttribute() {
+        return attribute;
+    }
+
+    public Object valueOf(Student student) {
+        switch (this) {
+            case NAME:
+                return student.getName();
+            case EMAIL:
+                return student.getEmail();
+            default:
+                return student.getId();
+        }
+    }
+
+    public static StudentSortKey fromParameter(String value) {
+        for (StudentSortKey key : values()) {
+            if (key.attribute.equalsIgnoreCase(value)) {
+                return key;
+            }
+        }
+        throw new BadRequestException("Unsupported sort key: " + value);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.demo.student;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Counts of students, read from counters instead of the table.
+ */
+@Getter
+@AllArgsConstructor
+public class StudentStats {
+
+    private final long total;
+    private final Map<Gender, Long> byGender;
+    // the most common domains first
+    private final Map<String, Long> byEmailDomain;
+    private final int emailDomainCount;
+    // when the counters were last recomputed from the database, null before the first time
+    private final Instant reconciledAt;
+    // true until the counters are first computed, when the last recomputation
+    // failed, or when a deletion or patch did not say what it replaced
+    private final boolean stale;
+}
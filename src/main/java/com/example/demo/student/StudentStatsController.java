@@ -0,0 +1,25 @@
+package com.example.demo.student;
+
+import lombok.AllArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping(path = "api/v1/students/stats")
+@AllArgsConstructor
+public class StudentStatsController {
+
+    private final StudentStatsService studentStatsService;
+
+    /**
+     * Counts by gender and by email domain, the domains limited to the most common ones.
+     * Served from memory, whatever the number of students.
+     */
+    @GetMapping
+    public StudentStats getStats(
+            @RequestParam(name = "domains", defaultValue = "" + StudentStatsService.DEFAULT_DOMAINS) int domains) {
+        return studentStatsService.getStats(domains);
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.demo.student;
+
+import com.example.demo.student.exception.BadRequestException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the student counts up to date from the committed changes, so that
+ * reading them never touches the table.
+ *
+ * Every change carries what is needed to adjust the counters: the student
+ * before and after a full update, the email and gender a deletion or a patch
+ * replaces, which the DELETE or UPDATE returns on PostgreSQL. Elsewhere such a
+ * change marks the counters stale, and the next check recomputes them. The
+ * counters are recomputed with GROUP BY queries on startup, and then rarely,
+ * to repair any drift.
+ */
+@Slf4j
+@Service
+public class StudentStatsService {
+
+    public static final int DEFAULT_DOMAINS = 20;
+    public static final int MAX_DOMAINS = 1000;
+
+    private final StudentRepository studentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration maxAge;
+    private final Clock clock;
+
+    private volatile Counters counters = new Counters();
+    private volatile Instant reconciledAt;
+    private volatile boolean stale = true;
+    // tells whether changes were applied while the counters were recomputed
+    private final AtomicLong appliedChanges = new AtomicLong();
+
+    @Autowired
+    public StudentStatsService(StudentRepository studentRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${student.stats.max-age:PT6H}") Duration maxAge) {
+        this(studentRepository, transactionManager, maxAge, Clock.systemUTC());
+    }
+
+    StudentStatsService(StudentRepository studentRepository,
+                        PlatformTransactionManager transactionManager,
+                        Duration maxAge,
+                        Clock clock) {
+        this.studentRepository = studentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.maxAge = maxAge;
+        this.clock = clock;
+    }
+
+    public StudentStats getStats(int domains) {
+        if (domains < 0 || domains > MAX_DOMAINS) {
+            throw new BadRequestException("domains must be between 0 and " + MAX_DOMAINS);
+        }
+        Counters current = counters;
+
+        Map<Gender, Long> byGender = new EnumMap<>(Gender.class);
+        for (Gender gender : Gender.values()) {
+            byGender.put(gender, current.byGender.getOrDefault(gender, 0L));
+        }
+        Map<String, Long> byEmailDomain = new LinkedHashMap<>();
+        current.byEmailDomain.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(domains)
+                .forEach(entry -> byEmailDomain.put(entry.getKey(), entry.getValue()));
+
+        return new StudentStats(current.total.get(), byGender, byEmailDomain,
+                current.byEmailDomain.size(), reconciledAt, stale);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentChange(StudentChangeEvent event) {
+        Counters current = counters;
+        switch (event.getType()) {
+            case CREATED:
+                current.add(event.getGender(), event.getEmail(), 1);
+                break;
+            case UPDATED:
+                if (event.getPrevious() != null) {
+                    Student previous = event.getPrevious();
+                    current.add(previous.getGender(), previous.getEmail(), -1);
+                    current.add(event.getGender(), event.getEmail(), 1);
+                } else if ((event.getEmail() != null && event.getPreviousEmail() == null)
+                        || (event.getGender() != null && event.getPreviousGender() == null)) {
+                    // a patch that did not say what it replaced
+                    stale = true;
+                } else if (event.getEmail() != null || event.getGender() != null) {
+                    // a patch, only the patched fields move
+                    if (event.getGender() != null) {
+                        current.move(event.getPreviousGender(), event.getGender());
+                    }
+                    if (event.getEmail() != null) {
+                        current.move(event.getPreviousEmail(), event.getEmail());
+                    }
+                }
+                break;
+            case DELETED:
+                if (event.getPreviousGender() == null) {
+                    stale = true;
+                } else {
+                    current.add(event.getPreviousGender(), event.getPreviousEmail(), -1);
+                }
+                break;
+        }
+        appliedChanges.incrementAndGet();
+    }
+
+    // the first check runs on startup, while the counters are still empty
+    @Scheduled(fixedDelayString = "${student.stats.check-interval-ms:60000}")
+    public void reconcileIfNeeded() {
+        Instant last = reconciledAt;
+        if (stale || last == null || last.plus(maxAge).isBefore(clock.instant())) {
+            reconcile();
+        }
+    }
+
+    public synchronized void reconcile() {
+        long changesBefore = appliedChanges.get();
+        stale = false;
+        try {
+            Counters next = transactionTemplate.execute(status -> {
+                Counters recounted = new Counters();
+                for (Object[] row : studentRepository.countByGender()) {
+                    long count = (Long) row[1];
+                    recounted.total.addAndGet(count);
+                    if (row[0] != null) {
+                        recounted.byGender.put((Gender) row[0], count);
+                    }
+                }
+                for (Object[] row : studentRepository.countByEmailDomain()) {
+                    if (row[0] != null) {
+                        recounted.byEmailDomain.merge((String) row[0], (Long) row[1], Long::sum);
+                    }
+                }
+                return recounted;
+            });
+            counters = next;
+            reconciledAt = clock.instant();
+        } catch (RuntimeException e) {
+            stale = true;
+            log.warn("Could not reconcile the student statistics", e);
+            return;
+        }
+        // a change committed during the queries may be counted twice or not at all;
+        // rather than scanning again at once, this drift waits for the next reconcile
+        if (appliedChanges.get() != changesBefore) {
+            log.debug("Student changes were committed while the statistics were reconciled");
+        }
+    }
+
+    /**
+     * Must give the same domain as the GROUP BY of
+     * {@link StudentRepository#countByEmailDomain()}.
+     */
+    static String emailDomain(String email) {
+        return email.substring(email.indexOf('@') + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Counters {
+
+        private final AtomicLong total = new AtomicLong();
+        private final Map<Gender, Long> byGender = new ConcurrentHashMap<>();
+        // domains without students are removed
+        private final Map<String, Long> byEmailDomain = new ConcurrentHashMap<>();
+
+        void add(Gender gender, String email, long delta) {
+            total.addAndGet(delta);
+            if (gender != null) {
+                byGender.compute(gender, (key, count) -> nonZero(count, delta));
+            }
+            if (email != null) {
+                byEmailDomain.compute(emailDomain(email), (key, count) -> nonZero(count, delta));
+            }
+        }
+
+        void move(Gender from, Gender to) {
+            if (from != null) {
+                byGender.compute(from, (key, count) -> nonZero(count, -1));
+            }
+            byGender.compute(to, (key, count) -> nonZero(count, 1));
+        }
+
+        void move(String fromEmail, String toEmail) {
+            if (fromEmail != null) {
+                byEmailDomain.compute(emailDomain(fromEmail), (key, count) -> nonZero(count, -1));
+            }
+            byEmailDomain.compute(emailDomain(toEmail), (key, count) -> nonZero(count, 1));
+        }
+
+        private static Long nonZero(Long count, long delta) {
+            long sum = (count == null ? 0 : count) + delta;
+            return sum == 0 ? null : sum;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.demo.student;
+
+import lombok.AllArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping(path = "api/v1/students/changes")
+@AllArgsConstructor
+public class StudentSyncController {
+
+    private final StudentSyncService studentSyncService;
+
+    /**
+     * The students created, updated or deleted after the change token, all the
+     * students without one. The answer carries the token of the next call.
+     * 410 Gone tells that the token is too old and the client must start over.
+     */
+    @GetMapping
+    public StudentChanges getChanges(
+            @RequestParam(name = "since", required = false) String since,
+            @RequestParam(name = "size", defaultValue = "" + StudentSyncService.DEFAULT_SIZE) int size) {
+        return studentSyncService.getChanges(since, size);
+    }
+}
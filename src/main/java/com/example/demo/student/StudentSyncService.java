@@ -0,0 +1,174 @@
+package com.example.demo.student;
+
+import com.example.demo.student.exception.BadRequestException;
+import com.example.demo.student.exception.ChangeTokenExpiredException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental sync of the students: the changes after a change token, in
+ * revision order, a page at a time.
+ *
+ * A revision is handed out before its transaction commits, so a change may
+ * become visible after changes of higher revisions. Only the changes older
+ * than the settle time are returned, by then the transactions that handed out
+ * their revisions have committed, and the replicas have caught up (see
+ * student.datasource.max-replica-lag). The settle time must exceed both, plus
+ * what is left of the clock skew between the instances once their revision
+ * clocks are aligned on the database: half a round trip to it, and the drift
+ * between two alignments.
+ *
+ * Tombstones are kept for the retention time. A token handed out longer ago
+ * than that may miss deletions, and is answered with 410 Gone: the client
+ * must sync again from scratch.
+ */
+@Slf4j
+@Service
+public class StudentSyncService {
+
+    public static final int DEFAULT_SIZE = 500;
+    public static final int MAX_SIZE = 1000;
+
+    private final StudentRepository studentRepository;
+    private final StudentTombstoneRepository studentTombstoneRepository;
+    private final Duration settleTime;
+    private final Duration tombstoneRetention;
+    private final Clock clock;
+
+    @Autowired
+    public StudentSyncService(StudentRepository studentRepository,
+                              StudentTombstoneRepository studentTombstoneRepository,
+                              @Value("${student.sync.settle-time:PT10S}") Duration settleTime,
+                              @Value("${student.sync.tombstone-retention:P30D}") Duration tombstoneRetention) {
+        this(studentRepository, studentTombstoneRepository, settleTime, tombstoneRetention,
+                StudentRevisionClock.clock());
+    }
+
+    StudentSyncService(StudentRepository studentRepository,
+                       StudentTombstoneRepository studentTombstoneRepository,
+                       Duration settleTime,
+                       Duration tombstoneRetention,
+                       Clock clock) {
+        this.studentRepository = studentRepository;
+        this.studentTombstoneRepository = studentTombstoneRepository;
+        this.settleTime = settleTime;
+        this.tombstoneRetention = tombstoneRetention;
+        this.clock = clock;
+    }
+
+    /**
+     * @param since the token of the last changes received, null for a full sync
+     */
+    @Transactional(readOnly = true)
+    public StudentChanges getChanges(String since, int size) {
+        if (size < 1) {
+            throw new BadRequestException("The page size must be positive.");
+        }
+        size = Math.min(size, MAX_SIZE);
+        StudentChangeToken after = since == null || since.isBlank()
+                ? StudentChangeToken.INITIAL
+                : StudentChangeToken.decode(since);
+        // a full sync has nothing to delete
+        boolean withDeletions = after != StudentChangeToken.INITIAL;
+        if (withDeletions && after.getIssuedAt() < tombstoneHorizon()) {
+            throw new ChangeTokenExpiredException(
+                    "The change token is too old, sync again without one");
+        }
+        long settled = StudentRevisionClock.lowestAt(clock.instant().minus(settleTime));
+
+        // a page of each, one more than asked for to tell whether more follow
+        PageRequest page = PageRequest.of(0, size + 1);
+        List<Student> students = studentRepository.findChangedAfter(
+                after.getRevision(), after.getId(), settled, page);
+        List<StudentTombstone> tombstones = withDeletions
+                ? studentTombstoneRepository.findAfter(after.getRevision(), after.getId(), settled, page)
+                : List.of();
+
+        // merged in revision order, up to the page size
+        List<Student> upserted = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        StudentChangeToken last = after;
+        int s = 0;
+        int t = 0;
+        while (upserted.size() + deleted.size() < size && (s < students.size() || t < tombstones.size())) {
+            StudentChangeToken nextStudent = s < students.size() ? tokenOf(students.get(s)) : null;
+            StudentChangeToken nextTombstone = t < tombstones.size() ? tokenOf(tombstones.get(t)) : null;
+            if (nextTombstone == null || (nextStudent != null && nextStudent.isBefore(nextTombstone))) {
+                upserted.add(students.get(s++));
+                last = nextStudent;
+            } else {
+                deleted.add(tombstones.get(t++).getStudentId());
+                last = nextTombstone;
+            }
+        }
+        boolean hasMore = s < students.size() || t < tombstones.size();
+
+        // once everything settled was returned, the next changes are all after
+        // the settled revision: idle clients keep a recent token this way
+        StudentChangeToken allSettled = new StudentChangeToken(settled, Long.MAX_VALUE, settled);
+        StudentChangeToken next = !hasMore && last.isBefore(allSettled)
+                ? allSettled
+                : new StudentChangeToken(last.getRevision(), last.getId(), settled);
+        return new StudentChanges(upserted, deleted, next.encode(), hasMore);
+    }
+
+    /**
+     * Removes the tombstones older than the retention time; the tokens that
+     * could still need them are refused from then on.
+     */
+    @Transactional
+    @Scheduled(fixedDelayString = "${student.sync.compaction-interval-ms:3600000}")
+    public int compact() {
+        int removed = studentTombstoneRepository.deleteOlderThan(tombstoneHorizon());
+        if (removed > 0) {
+            log.info("Removed {} tombstones older than {}", removed, tombstoneRetention);
+        }
+        return removed;
+    }
+
+    /**
+     * Aligns the revision clock on the clock of the primary database, so that
+     * a token issued by one instance is not ahead of the revisions another
+     * one hands out, and makes the revisions of this instance continue after
+     * the highest one stored. Read-write, to run on the primary.
+     */
+    @Transactional
+    @Scheduled(fixedDelayString = "${student.sync.clock-check-interval-ms:10000}")
+    public void alignRevisionClock() {
+        long sent = System.currentTimeMillis();
+        double databaseTime = studentRepository.findDatabaseTimeMillis();
+        long received = System.currentTimeMillis();
+        // the database read its clock halfway through the round trip, give or take half of it
+        Duration offset = Duration.ofMillis(Math.round(databaseTime - (sent + received) / 2.0));
+        StudentRevisionClock.align(offset);
+        log.debug("Revision clock {} off the database, round trip {} ms", offset, received - sent);
+
+        Long students = studentRepository.findMaxRevision();
+        Long tombstones = studentTombstoneRepository.findMaxRevision();
+        StudentRevisionClock.observe(Math.max(
+                students == null ? 0 : students,
+                tombstones == null ? 0 : tombstones));
+    }
+
+    private long tombstoneHorizon() {
+        return StudentRevisionClock.lowestAt(clock.instant().minus(tombstoneRetention));
+    }
+
+    private static StudentChangeToken tokenOf(Student student) {
+        return new StudentChangeToken(student.getRevision(), student.getId(), 0);
+    }
+
+    private static StudentChangeToken tokenOf(StudentTombstone tombstone) {
+        return new StudentChangeToken(tombstone.getRevision(), tombstone.getStudentId(), 0);
+    }
+}
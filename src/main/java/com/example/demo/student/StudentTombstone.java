@@ -0,0 +1,54 @@
+package com.example.demo.student;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PostLoad;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import java.time.Instant;
+
+/**
+ * Remembers a deleted student, so that the clients syncing the changes learn
+ * about the deletion. Removed after a while, see StudentSyncService#compact.
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "student_tombstone_revision_idx", columnList = "revision, studentId"))
+public class StudentTombstone implements Persistable<Long> {
+
+    @Id
+    private Long studentId;
+    private long revision;
+    private Instant deletedAt;
+
+    // only ever inserted: saving it must not SELECT it first, as for an assigned id
+    @Transient
+    private boolean inserted = true;
+
+    public StudentTombstone(Long studentId, long revision, Instant deletedAt) {
+        this.studentId = studentId;
+        this.revision = revision;
+        this.deletedAt = deletedAt;
+    }
+
+    @Override
+    public Long getId() {
+        return studentId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return inserted;
+    }
+
+    @PostLoad
+    void loaded() {
+        inserted = false;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.demo.student;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StudentTombstoneRepository extends JpaRepository<StudentTombstone, Long> {
+
+    // keyset page of the deletions after (revision, studentId), up to maxRevision
+    @Query("" +
+            "SELECT t FROM StudentTombstone t " +
+            "WHERE (t.revision > :revision OR (t.revision = :revision AND t.studentId > :studentId)) " +
+            "AND t.revision <= :maxRevision " +
+            "ORDER BY t.revision, t.studentId"
+    )
+    List<StudentTombstone> findAfter(@Param("revision") long revision,
+                                     @Param("studentId") long studentId,
+                                     @Param("maxRevision") long maxRevision,
+                                     Pageable pageable);
+
+    @Query("SELECT MAX(t.revision) FROM StudentTombstone t")
+    Long findMaxRevision();
+
+    @Modifying
+    @Query("" +
+            "DELETE FROM StudentTombstone t " +
+            "WHERE t.revision < :revision"
+    )
+    int deleteOlderThan(@Param("revision") long revision);
+}
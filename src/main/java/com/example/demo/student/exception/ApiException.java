@@ -0,0 +1,15 @@
+package com.example.demo.student.exception;
+
+/**
+ * An expected outcome of a request, answered to the client with the status of
+ * the ResponseStatus of the subclass by ApiExceptionHandler: bad input, stale
+ * ids or versions, limits reached. These are routine and never investigated
+ * from a stack trace, so they are created without one, which is most of the
+ * cost of throwing.
+ */
+public abstract class ApiException extends RuntimeException {
+
+    protected ApiException(String msg) {
+        super(msg, null, false, false);
+    }
+}
@@ -5,8 +5,11 @@ import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+/**
+ * Rejected input, answered as a 400 problem by ApiExceptionHandler.
+ */
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class BadRequestException extends RuntimeException{
+public class BadRequestException extends ApiException {
 
     private final int statusCode;
 
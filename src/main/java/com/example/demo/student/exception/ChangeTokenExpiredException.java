@@ -0,0 +1,12 @@
+package com.example.demo.student.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.GONE)
+public class ChangeTokenExpiredException extends ApiException {
+
+    public ChangeTokenExpiredException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.demo.student.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class ImportJobNotFoundException extends ApiException {
+
+    public ImportJobNotFoundException(String msg) {
+        super(msg);
+    }
+}
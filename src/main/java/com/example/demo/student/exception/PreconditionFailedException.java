@@ -0,0 +1,12 @@
+package com.example.demo.student.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class PreconditionFailedException extends ApiException {
+
+    public PreconditionFailedException(String msg) {
+        super(msg);
+    }
+}
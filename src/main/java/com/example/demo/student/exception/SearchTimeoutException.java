@@ -0,0 +1,12 @@
+package com.example.demo.student.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class SearchTimeoutException extends ApiException {
+
+    public SearchTimeoutException(String msg) {
+        super(msg);
+    }
+}
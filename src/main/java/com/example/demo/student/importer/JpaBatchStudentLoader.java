@@ -0,0 +1,23 @@
+package com.example.demo.student.importer;
+
+import com.example.demo.student.Student;
+import com.example.demo.student.StudentRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Portable loader relying on Hibernate JDBC batching, used on H2 and other databases.
+ */
+@AllArgsConstructor
+class JpaBatchStudentLoader implements StudentChunkLoader {
+
+    private final StudentRepository studentRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public void load(List<Student> students) {
+        transactionTemplate.executeWithoutResult(status -> studentRepository.saveAll(students));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo.student.importer;
+
+import com.example.demo.student.Student;
+import com.example.demo.student.StudentRevisionClock;
+import lombok.AllArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Streams a chunk into PostgreSQL with COPY, which is several times faster than
+ * even batched INSERT statements.
+ * COPY bypasses Hibernate, so ids are reserved from student_sequence with the same
+ * pooled-lo semantics as {@link Student}: every nextval value starts a block of
+ * {@link Student#ID_ALLOCATION_SIZE} ids.
+ */
+@AllArgsConstructor
+class PostgresCopyStudentLoader implements StudentChunkLoader {
+
+    private static final String COPY_SQL =
+            "COPY student (id, name, email, gender, revision) FROM STDIN WITH (FORMAT csv)";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public void load(List<Student> students) {
+        transactionTemplate.executeWithoutResult(status -> copy(students));
+    }
+
+    private void copy(List<Student> students) {
+        int blocks = (students.size() + Student.ID_ALLOCATION_SIZE - 1) / Student.ID_ALLOCATION_SIZE;
+        List<Long> blockStarts = jdbcTemplate.queryForList(
+                "SELECT nextval('student_sequence') FROM generate_series(1, ?)", Long.class, blocks);
+
+        // bypasses the entity callbacks; the whole chunk is one change
+        long revision = StudentRevisionClock.next();
+        StringBuilder rows = new StringBuilder(students.size() * 64);
+        for (int i = 0; i < students.size(); i++) {
+            Student student = students.get(i);
+            student.setId(blockStarts.get(i / Student.ID_ALLOCATION_SIZE) + i % Student.ID_ALLOCATION_SIZE);
+            rows.append(student.getId()).append(',')
+                    .append(quote(student.getName())).append(',')
+                    .append(quote(student.getEmail())).append(',')
+                    .append(student.getGender()).append(',')
+                    .append(revision).append('\n');
+        }
+
+        // the connection of the surrounding transaction
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            connection.unwrap(PGConnection.class)
+                    .getCopyAPI()
+                    .copyIn(COPY_SQL, new StringReader(rows.toString()));
+        } catch (SQLException e) {
+            throw new IllegalStateException("COPY into student failed: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
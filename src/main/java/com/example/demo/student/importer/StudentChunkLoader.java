@@ -0,0 +1,14 @@
+package com.example.demo.student.importer;
+
+import com.example.demo.student.Student;
+
+import java.util.List;
+
+/**
+ * Inserts a chunk of validated students with unique, not yet taken emails.
+ * A chunk is loaded atomically: either all of its students are inserted or none.
+ */
+interface StudentChunkLoader {
+
+    void load(List<Student> students);
+}
@@ -0,0 +1,36 @@
+package com.example.demo.student.importer;
+
+import com.example.demo.student.StudentRepository;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+@Configuration
+public class StudentImportConfig {
+
+    /**
+     * COPY on PostgreSQL, batched inserts everywhere else (H2 in the tests).
+     * Lazy like the import service, the only user: no metadata query at startup.
+     */
+    @Bean
+    @Lazy
+    StudentChunkLoader studentChunkLoader(DataSource dataSource,
+                                          JdbcTemplate jdbcTemplate,
+                                          StudentRepository studentRepository,
+                                          PlatformTransactionManager transactionManager) throws MetaDataAccessException {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        if ("PostgreSQL".equals(product)) {
+            return new PostgresCopyStudentLoader(dataSource, jdbcTemplate, transactionTemplate);
+        }
+        return new JpaBatchStudentLoader(studentRepository, transactionTemplate);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.demo.student.importer;
+
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.UUID;
+
+@RestController
+@RequestMapping(path = "api/v1/students/import")
+@AllArgsConstructor
+// rarely used, created on the first import instead of at startup, with its thread pools
+@Lazy
+public class StudentImportController {
+
+    private final StudentImportService studentImportService;
+
+    /**
+     * Starts the import of a CSV roster and answers immediately,
+     * the Location header points to the progress report of the job.
+     */
+    @PostMapping
+    public ResponseEntity<StudentImportJob> importStudents(
+            @RequestParam("file") MultipartFile file) throws IOException {
+        StudentImportJob job = studentImportService.startImport(file);
+
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest()
+                        .path("/{jobId}")
+                        .buildAndExpand(job.getId())
+                        .toUri())
+                .body(job);
+    }
+
+    @GetMapping(path = "{jobId}")
+    public StudentImportJob getImportJob(@PathVariable("jobId") UUID jobId) {
+
+        return studentImportService.getJob(jobId);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.student.importer;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress and error report of one CSV import, updated while the import runs.
+ */
+@Getter
+public class StudentImportJob {
+
+    // keep the report small even when every row of a large file is rejected
+    static final int MAX_REPORTED_ERRORS = 100;
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class RowError {
+        private final long row;
+        private final String message;
+    }
+
+    private final UUID id = UUID.randomUUID();
+    private final Instant startedAt = Instant.now();
+    private volatile Instant finishedAt;
+    private volatile Status status = Status.RUNNING;
+    private volatile String failure;
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsImported = new AtomicLong();
+    private final AtomicLong rowsRejected = new AtomicLong();
+    private final List<RowError> errors = Collections.synchronizedList(new ArrayList<>());
+
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    public long getRowsImported() {
+        return rowsImported.get();
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected.get();
+    }
+
+    public List<RowError> getErrors() {
+        synchronized (errors) {
+            return List.copyOf(errors);
+        }
+    }
+
+    void rowRead() {
+        rowsRead.incrementAndGet();
+    }
+
+    void imported(int count) {
+        rowsImported.addAndGet(count);
+    }
+
+    void reject(long row, String message) {
+        rowsRejected.incrementAndGet();
+        synchronized (errors) {
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(row, message));
+            }
+        }
+    }
+
+    void complete() {
+        finish(Status.COMPLETED);
+    }
+
+    void fail(String message) {
+        failure = message;
+        finish(Status.FAILED);
+    }
+
+    boolean isFinished() {
+        return status != Status.RUNNING;
+    }
+
+    private void finish(Status status) {
+        finishedAt = Instant.now();
+        this.status = status;
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.demo.student.importer;
+
+import com.example.demo.student.Gender;
+import com.example.demo.student.Student;
+import com.example.demo.student.StudentChangeEvent;
+import com.example.demo.student.StudentCsv;
+import com.example.demo.student.StudentEmailIndex;
+import com.example.demo.student.StudentRepository;
+import com.example.demo.student.StudentService;
+import com.example.demo.student.exception.BadRequestException;
+import com.example.demo.student.exception.ImportJobNotFoundException;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Imports student rosters from CSV files (header: name,email,gender in any order).
+ *
+ * The file is read line by line by one coordinator thread and cut into chunks.
+ * Chunks are parsed and validated in parallel on a worker pool, then, in file order,
+ * de-duplicated against the emails seen so far and against the database and
+ * handed to the {@link StudentChunkLoader}. At most {@link #MAX_CHUNKS_IN_FLIGHT}
+ * chunks are held in memory at a time.
+ */
+@Slf4j
+@Service
+@Lazy
+public class StudentImportService {
+
+    static final int CHUNK_SIZE = 5000;
+    static final int MAX_CHUNKS_IN_FLIGHT = 4;
+    private static final int CONCURRENT_IMPORTS = 2;
+    private static final Duration FINISHED_JOB_RETENTION = Duration.ofHours(1);
+
+    private final StudentRepository studentRepository;
+    private final StudentChunkLoader studentChunkLoader;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StudentEmailIndex studentEmailIndex;
+
+    private final Map<UUID, StudentImportJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService coordinators = Executors.newFixedThreadPool(CONCURRENT_IMPORTS);
+    private final ExecutorService workers = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors());
+
+    public StudentImportService(StudentRepository studentRepository,
+                                StudentChunkLoader studentChunkLoader,
+                                Validator validator,
+                                ApplicationEventPublisher eventPublisher,
+                                StudentEmailIndex studentEmailIndex) {
+        this.studentRepository = studentRepository;
+        this.studentChunkLoader = studentChunkLoader;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.studentEmailIndex = studentEmailIndex;
+    }
+
+    public StudentImportJob startImport(MultipartFile file) throws IOException {
+        forgetFinishedJobs();
+
+        // the upload is deleted with the request, keep it until the job is done
+        Path upload = Files.createTempFile("student-import-", ".csv");
+        file.transferTo(upload);
+
+        StudentImportJob job = new StudentImportJob();
+        jobs.put(job.getId(), job);
+        coordinators.execute(() -> run(job, upload));
+        return job;
+    }
+
+    public StudentImportJob getJob(UUID jobId) {
+        StudentImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ImportJobNotFoundException("Import job " + jobId + " does not exist");
+        }
+        return job;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        coordinators.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void run(StudentImportJob job, Path upload) {
+        try (BufferedReader reader = Files.newBufferedReader(upload, StandardCharsets.UTF_8)) {
+            Columns columns = Columns.of(reader.readLine());
+            Set<String> seenEmails = new HashSet<>();
+            Deque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+
+            List<String> lines = new ArrayList<>(CHUNK_SIZE);
+            // the header is row 1
+            long firstRow = 2;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+                if (lines.size() == CHUNK_SIZE) {
+                    inFlight.add(submit(job, columns, firstRow, lines));
+                    firstRow += lines.size();
+                    lines = new ArrayList<>(CHUNK_SIZE);
+                    if (inFlight.size() == MAX_CHUNKS_IN_FLIGHT) {
+                        load(job, inFlight.poll().get(), seenEmails);
+                    }
+                }
+            }
+            if (!lines.isEmpty()) {
+                inFlight.add(submit(job, columns, firstRow, lines));
+            }
+            while (!inFlight.isEmpty()) {
+                load(job, inFlight.poll().get(), seenEmails);
+            }
+            job.complete();
+        } catch (BadRequestException e) {
+            job.fail(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("Import interrupted");
+        } catch (IOException | ExecutionException | RuntimeException e) {
+            log.error("Import {} failed", job.getId(), e);
+            job.fail("Import failed: " + e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(upload);
+            } catch (IOException e) {
+                log.warn("Could not delete import upload {}", upload, e);
+            }
+        }
+    }
+
+    private Future<ParsedChunk> submit(StudentImportJob job, Columns columns, long firstRow, List<String> lines) {
+        return workers.submit(() -> parse(job, columns, firstRow, lines));
+    }
+
+    /**
+     * Runs on the worker pool: parses and validates the rows of one chunk.
+     */
+    private ParsedChunk parse(StudentImportJob job, Columns columns, long firstRow, List<String> lines) {
+        ParsedChunk chunk = new ParsedChunk();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                continue;
+            }
+            long row = firstRow + i;
+            job.rowRead();
+            try {
+                Student student = columns.toStudent(StudentCsv.parseLine(line));
+                Set<ConstraintViolation<Student>> violations = validator.validate(student);
+                if (violations.isEmpty()) {
+                    chunk.rows.add(row);
+                    chunk.students.add(student);
+                } else {
+                    job.reject(row, violations.stream()
+                            .map(ConstraintViolation::getMessage)
+                            .collect(Collectors.joining("\n")));
+                }
+            } catch (IllegalArgumentException e) {
+                job.reject(row, e.getMessage());
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Runs on the coordinator thread, in file order.
+     */
+    private void load(StudentImportJob job, ParsedChunk chunk, Set<String> seenEmails) {
+        List<Long> rows = new ArrayList<>(chunk.students.size());
+        List<Student> students = new ArrayList<>(chunk.students.size());
+        for (int i = 0; i < chunk.students.size(); i++) {
+            Student student = chunk.students.get(i);
+            if (seenEmails.add(student.getEmail())) {
+                rows.add(chunk.rows.get(i));
+                students.add(student);
+            } else {
+                job.reject(chunk.rows.get(i), "Email " + student.getEmail() + " is repeated in the file");
+            }
+        }
+        if (students.isEmpty()) {
+            return;
+        }
+
+        // most emails of a roster are new, the index spares looking them up
+        List<String> maybeTakenEmails = students.stream()
+                .map(Student::getEmail)
+                .filter(studentEmailIndex::mightContain)
+                .collect(Collectors.toList());
+        List<Long> newRows = new ArrayList<>(students.size());
+        List<Student> newStudents = rejectTaken(job, students, rows, maybeTakenEmails, newRows);
+        if (newStudents.isEmpty()) {
+            return;
+        }
+
+        try {
+            insert(job, newStudents);
+        } catch (RuntimeException e) {
+            if (!StudentService.isUniqueViolation(e)) {
+                rejectChunk(job, newRows, e);
+                return;
+            }
+            // an email the index did not know, registered by another instance or
+            // meanwhile: the chunk was rolled back, look every email up and load
+            // the others again
+            List<Long> retryRows = new ArrayList<>(newStudents.size());
+            List<Student> retryStudents = rejectTaken(job, newStudents, newRows,
+                    newStudents.stream().map(Student::getEmail).collect(Collectors.toList()), retryRows);
+            if (retryStudents.isEmpty()) {
+                return;
+            }
+            retryStudents.forEach(Student::resetIdentity);
+            try {
+                insert(job, retryStudents);
+            } catch (RuntimeException retryFailure) {
+                rejectChunk(job, retryRows, retryFailure);
+            }
+        }
+    }
+
+    /**
+     * Rejects the students whose email is taken among the given ones.
+     *
+     * @return the other students, their rows added to newRows
+     */
+    private List<Student> rejectTaken(StudentImportJob job, List<Student> students, List<Long> rows,
+                                      List<String> emailsToLookUp, List<Long> newRows) {
+        Set<String> takenEmails = emailsToLookUp.isEmpty()
+                ? Set.of()
+                : studentRepository.selectTakenEmails(emailsToLookUp);
+        List<Student> newStudents = new ArrayList<>(students.size());
+        for (int i = 0; i < students.size(); i++) {
+            Student student = students.get(i);
+            if (takenEmails.contains(student.getEmail())) {
+                job.reject(rows.get(i), "Email " + student.getEmail() + " is taken");
+            } else {
+                newStudents.add(student);
+                newRows.add(rows.get(i));
+            }
+        }
+        return newStudents;
+    }
+
+    private void insert(StudentImportJob job, List<Student> students) {
+        studentChunkLoader.load(students);
+        job.imported(students.size());
+        // the chunk is committed
+        students.forEach(student ->
+                eventPublisher.publishEvent(StudentChangeEvent.created(student)));
+    }
+
+    private void rejectChunk(StudentImportJob job, List<Long> rows, RuntimeException e) {
+        // the whole chunk was rolled back
+        log.warn("Import {} could not load a chunk", job.getId(), e);
+        for (Long row : rows) {
+            job.reject(row, "Chunk rejected by the database: " + e.getMessage());
+        }
+    }
+
+    private void forgetFinishedJobs() {
+        Instant threshold = Instant.now().minus(FINISHED_JOB_RETENTION);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(threshold));
+    }
+
+    private static class ParsedChunk {
+        private final List<Long> rows = new ArrayList<>();
+        private final List<Student> students = new ArrayList<>();
+    }
+
+    /**
+     * Positions of the student fields in the CSV file, taken from its header.
+     */
+    @AllArgsConstructor
+    private static class Columns {
+        private final int name;
+        private final int email;
+        private final int gender;
+
+        static Columns of(String header) {
+            if (header == null) {
+                throw new BadRequestException("The file is empty");
+            }
+            List<String> names = StudentCsv.parseLine(header).stream()
+                    .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                    .collect(Collectors.toList());
+            if (!names.containsAll(List.of("name", "email", "gender"))) {
+                throw new BadRequestException("The header must contain the columns name, email and gender");
+            }
+            return new Columns(names.indexOf("name"), names.indexOf("email"), names.indexOf("gender"));
+        }
+
+        Student toStudent(List<String> fields) {
+            int required = Math.max(name, Math.max(email, gender)) + 1;
+            if (fields.size() < required) {
+                throw new IllegalArgumentException("Expected at least " + required + " columns");
+            }
+            String genderValue = fields.get(gender).trim().toUpperCase(Locale.ROOT);
+            try {
+                return new Student(
+                        fields.get(name).trim(),
+                        fields.get(email).trim(),
+                        Gender.valueOf(genderValue));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown gender: " + fields.get(gender));
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.demo.web;
+
+import com.example.demo.student.StudentProtobufHttpMessageConverter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Besides JSON, the API speaks CBOR (application/cbor), Smile
+ * (application/x-jackson-smile) and, for the student responses, Protocol
+ * Buffers (application/x-protobuf), chosen by the Accept header.
+ *
+ * Spring MVC registers CBOR and Smile converters of its own as soon as the
+ * formats are on the classpath; Spring Boot puts these beans, which have its
+ * ObjectMapper configuration, right before them, still after JSON. The
+ * protobuf converter is appended last, so that Accept: * / * still gets JSON.
+ */
+@Configuration
+public class MessageConverterConfig implements WebMvcConfigurer {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(
+            Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        // the builder bean is a prototype, each format gets its own
+        return new MappingJackson2CborHttpMessageConverter(
+                objectMapperBuilder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(
+            Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        return new MappingJackson2SmileHttpMessageConverter(
+                objectMapperBuilder.factory(new SmileFactory()).build());
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new StudentProtobufHttpMessageConverter());
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.demo.web;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.PathResourceResolver;
+
+import java.time.Duration;
+
+/**
+ * The React build copied into static/ by the build-frontend profile puts its
+ * scripts, styles and media under static/static/, with the hash of their
+ * content in the file name. A changed file gets a new name, so these can be
+ * cached for a year without ever revalidating (the immutable directive
+ * needs Spring 6, browsers only use it to skip revalidating on reload).
+ *
+ * Everything else (index.html, the manifest, the icons) keeps a stable name
+ * and is served by the default handler, configured in application.properties
+ * to be revalidated with Last-Modified on every use.
+ *
+ * Both serve the .br and .gz files written next to the originals by the
+ * frontend build to the browsers accepting them, and answer Range requests.
+ */
+@Configuration
+public class StaticResourceConfig implements WebMvcConfigurer {
+
+    static final String HASHED_ASSETS = "/static/**";
+    static final Duration HASHED_ASSETS_MAX_AGE = Duration.ofDays(365);
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler(HASHED_ASSETS)
+                .addResourceLocations("classpath:/static/static/")
+                .setCacheControl(CacheControl.maxAge(HASHED_ASSETS_MAX_AGE).cachePublic())
+                // caches the resolved resources, per Accept-Encoding
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new PathResourceResolver());
+    }
+}
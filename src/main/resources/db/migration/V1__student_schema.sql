@@ -0,0 +1,33 @@
+-- The tables of the entities, as Hibernate created them with ddl-auto=update.
+-- Every statement can run on a database Hibernate created, of this version or
+-- an earlier one: spring.flyway.baseline-version=0 runs them there too.
+
+-- ids are allocated in blocks of Student.ID_ALLOCATION_SIZE (pooled-lo),
+-- the databases of the earlier versions were incremented by 1
+CREATE SEQUENCE IF NOT EXISTS student_sequence START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE student_sequence INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS student (
+    id     bigint       NOT NULL,
+    name   varchar(255) NOT NULL,
+    email  varchar(255) NOT NULL,
+    gender varchar(255) NOT NULL,
+    CONSTRAINT student_pkey PRIMARY KEY (id),
+    CONSTRAINT student_email_key UNIQUE (email)
+);
+-- optimistic locking, then the revisions of the delta sync
+ALTER TABLE student ADD COLUMN IF NOT EXISTS version bigint DEFAULT 0 NOT NULL;
+ALTER TABLE student ADD COLUMN IF NOT EXISTS revision bigint DEFAULT 0 NOT NULL;
+
+CREATE INDEX IF NOT EXISTS student_name_id_idx ON student (name, id);
+CREATE INDEX IF NOT EXISTS student_gender_id_idx ON student (gender, id);
+CREATE INDEX IF NOT EXISTS student_revision_id_idx ON student (revision, id);
+
+CREATE TABLE IF NOT EXISTS student_tombstone (
+    student_id bigint NOT NULL,
+    revision   bigint NOT NULL,
+    deleted_at timestamp,
+    CONSTRAINT student_tombstone_pkey PRIMARY KEY (student_id)
+);
+
+CREATE INDEX IF NOT EXISTS student_tombstone_revision_idx ON student_tombstone (revision, student_id);
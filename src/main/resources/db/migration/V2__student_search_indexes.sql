@@ -0,0 +1,16 @@
+-- Indexes of the student search that JPA cannot declare on the entity.
+-- PostgreSQL only (pg_trgm, gin), SchemaMigrationTest stops at V1 on H2.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- name prefix: lower(name) LIKE 'abc%', text_pattern_ops makes LIKE usable whatever the collation
+CREATE INDEX IF NOT EXISTS student_lower_name_idx
+    ON student (lower(name) text_pattern_ops);
+
+-- name substring: lower(name) LIKE '%abc%'
+CREATE INDEX IF NOT EXISTS student_lower_name_trgm_idx
+    ON student USING gin (lower(name) gin_trgm_ops);
+
+-- email domain: lower(email) LIKE '%@example.com'
+CREATE INDEX IF NOT EXISTS student_lower_email_trgm_idx
+    ON student USING gin (lower(email) gin_trgm_ops);
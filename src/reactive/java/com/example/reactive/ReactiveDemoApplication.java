@@ -0,0 +1,35 @@
+package com.example.reactive;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+/**
+ * Non-blocking variant of the student API: the same api/v1/students contract
+ * served by WebFlux on a few event loop threads, with R2DBC instead of JDBC.
+ * Only built with the reactive Maven profile, e.g.
+ * ./mvnw -P reactive,!build-frontend spring-boot:run
+ *
+ * It shares the database of the servlet application, whose Hibernate
+ * creates the schema.
+ */
+@SpringBootApplication(exclude = {
+        DataSourceAutoConfiguration.class,
+        DataSourceTransactionManagerAutoConfiguration.class,
+        HibernateJpaAutoConfiguration.class
+})
+public class ReactiveDemoApplication {
+
+    public static final String PROFILE = "reactive";
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(ReactiveDemoApplication.class)
+                .profiles(PROFILE)
+                // spring-webmvc is on the classpath too
+                .web(WebApplicationType.REACTIVE)
+                .run(args);
+    }
+}
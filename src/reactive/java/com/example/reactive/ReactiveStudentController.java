@@ -0,0 +1,106 @@
+package com.example.reactive;
+
+import com.example.demo.student.Student;
+import com.example.demo.student.StudentETag;
+import com.example.demo.student.StudentPage;
+import com.example.demo.student.StudentPageRequest;
+import com.example.demo.student.exception.BadRequestException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Validator;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Same contract as StudentController for the listing, the reads and the
+ * single-student writes. The request bodies are validated by hand so that
+ * invalid students are refused with the same BadRequestException message.
+ */
+@RestController
+@RequestMapping(path = "api/v1/students")
+public class ReactiveStudentController {
+
+    private final ReactiveStudentService studentService;
+    private final Validator validator;
+
+    ReactiveStudentController(ReactiveStudentService studentService, Validator validator) {
+        this.studentService = studentService;
+        this.validator = validator;
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<List<Student>>> getAllStudents(
+            @RequestParam(name = "size", defaultValue = "" + StudentPageRequest.DEFAULT_SIZE) int size,
+            @RequestParam(name = "sort", defaultValue = "id") String sort,
+            @RequestParam(name = "direction", defaultValue = "asc") String direction,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            ServerHttpRequest request) {
+
+        return Mono.fromCallable(() -> StudentPageRequest.of(sort, direction, cursor, size))
+                .flatMap(studentService::getStudents)
+                .map(page -> toResponse(page, request));
+    }
+
+    @GetMapping(path = "{studentId}")
+    public Mono<ResponseEntity<Student>> getStudent(
+            @PathVariable("studentId") Long studentId) {
+
+        return studentService.getStudent(studentId)
+                .map(student -> ResponseEntity.ok()
+                        .eTag(StudentETag.of(student.getVersion()))
+                        .body(student));
+    }
+
+    @PostMapping
+    public Mono<Void> addStudent(@RequestBody Mono<Student> student) {
+
+        return student.map(this::validate)
+                .flatMap(studentService::addStudent)
+                .then();
+    }
+
+    @DeleteMapping(path = "{studentId}")
+    public Mono<Void> deleteStudent(
+            @PathVariable("studentId") Long studentId) {
+
+        return studentService.deleteStudent(studentId);
+    }
+
+    @PutMapping(path = "{studentId}")
+    public Mono<Void> updateStudent(
+            @PathVariable("studentId") Long studentId,
+            @RequestBody Mono<Student> student) {
+
+        return student.map(this::validate)
+                .flatMap(valid -> studentService.updateStudent(studentId, valid));
+    }
+
+    private Student validate(Student student) {
+        BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(student, "student");
+        validator.validate(student, bindingResult);
+        if (bindingResult.hasErrors()) {
+            throw new BadRequestException(bindingResult);
+        }
+        return student;
+    }
+
+    private static ResponseEntity<List<Student>> toResponse(StudentPage<Student> page, ServerHttpRequest request) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache());
+        if (page.hasNext()) {
+            UriComponents next = UriComponentsBuilder.fromHttpRequest(request)
+                    .replaceQueryParam("cursor", page.getNextCursor())
+                    .build();
+            response.header(HttpHeaders.LINK,
+                    "<" + next.getPath() + "?" + next.getQuery() + ">; rel=\"next\"");
+        }
+        return response.body(page.getContent());
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.reactive;
+
+import com.example.demo.student.Student;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Hands out student ids like the pooled-lo optimizer of the servlet application:
+ * one nextval reserves Student.ID_ALLOCATION_SIZE ids starting at the returned
+ * value, so both applications can insert into the same table.
+ */
+@Component
+class ReactiveStudentIdAllocator {
+
+    private final DatabaseClient databaseClient;
+
+    // next id to hand out and first id past the reserved block
+    private long next;
+    private long limit;
+
+    ReactiveStudentIdAllocator(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    Mono<Long> nextId() {
+        synchronized (this) {
+            if (next < limit) {
+                return Mono.just(next++);
+            }
+        }
+        // concurrent callers may each reserve a block, the unused ids are simply skipped
+        return databaseClient.sql("SELECT nextval('student_sequence')")
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .map(low -> {
+                    synchronized (this) {
+                        next = low + 1;
+                        limit = low + Student.ID_ALLOCATION_SIZE;
+                    }
+                    return low;
+                });
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.reactive;
+
+import com.example.demo.student.Gender;
+import com.example.demo.student.Student;
+import com.example.demo.student.StudentCursor;
+import com.example.demo.student.StudentPageRequest;
+import com.example.demo.student.StudentRevisionClock;
+import com.example.demo.student.StudentSortKey;
+import io.r2dbc.spi.Row;
+import org.springframework.data.domain.Sort;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * The statements of StudentRepository written in SQL for R2DBC, against the
+ * table the servlet application maps.
+ */
+@Repository
+class ReactiveStudentRepository {
+
+    private static final String COLUMNS = "id, name, email, gender, version";
+
+    private final DatabaseClient databaseClient;
+    private final ReactiveStudentIdAllocator idAllocator;
+    private final TransactionalOperator transactionalOperator;
+
+    ReactiveStudentRepository(DatabaseClient databaseClient,
+                              ReactiveStudentIdAllocator idAllocator,
+                              TransactionalOperator transactionalOperator) {
+        this.databaseClient = databaseClient;
+        this.idAllocator = idAllocator;
+        this.transactionalOperator = transactionalOperator;
+    }
+
+    /**
+     * Same keyset query as StudentRepositoryImpl#findPage: up to size + 1 students
+     * after the cursor, the extra row telling whether a next page exists.
+     */
+    Flux<Student> findPage(StudentPageRequest pageRequest) {
+        boolean ascending = pageRequest.getDirection() == Sort.Direction.ASC;
+        String comparison = ascending ? ">" : "<";
+        String order = ascending ? "ASC" : "DESC";
+        // the sort key is an enum, never user text
+        String key = pageRequest.getSortKey().getAttribute();
+        StudentCursor cursor = pageRequest.getCursor();
+
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM student");
+        if (cursor != null) {
+            sql.append(pageRequest.getSortKey() == StudentSortKey.ID
+                    ? " WHERE id " + comparison + " :lastId"
+                    : " WHERE (" + key + " " + comparison + " :lastValue"
+                    + " OR (" + key + " = :lastValue AND id " + comparison + " :lastId))");
+        }
+        sql.append(pageRequest.getSortKey() == StudentSortKey.ID
+                ? " ORDER BY id " + order
+                : " ORDER BY " + key + " " + order + ", id " + order);
+        sql.append(" LIMIT :limit");
+
+        DatabaseClient.GenericExecuteSpec statement = databaseClient.sql(sql.toString())
+                .bind("limit", pageRequest.getSize() + 1);
+        if (cursor != null) {
+            statement = statement.bind("lastId", cursor.getLastId());
+            if (cursor.getLastValue() != null) {
+                statement = statement.bind("lastValue", cursor.getLastValue());
+            }
+        }
+        return statement.map(ReactiveStudentRepository::toStudent).all();
+    }
+
+    Mono<Student> findById(Long studentId) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM student WHERE id = :id")
+                .bind("id", studentId)
+                .map(ReactiveStudentRepository::toStudent)
+                .one();
+    }
+
+    /**
+     * A single INSERT, the unique constraint on the email rejects duplicates.
+     */
+    Mono<Student> insert(Student student) {
+        return idAllocator.nextId().flatMap(id -> databaseClient.sql(
+                        "INSERT INTO student (" + COLUMNS + ", revision) " +
+                                "VALUES (:id, :name, :email, :gender, 0, :revision)")
+                .bind("id", id)
+                .bind("revision", StudentRevisionClock.next())
+                .bind("name", student.getName())
+                .bind("email", student.getEmail())
+                .bind("gender", student.getGender().name())
+                .then()
+                .thenReturn(new Student(id, student.getName(), student.getEmail(), student.getGender(), 0L)));
+    }
+
+    /**
+     * @return the number of updated rows, 0 when the student does not exist
+     */
+    Mono<Integer> update(Long studentId, Student student) {
+        return databaseClient.sql(
+                        "UPDATE student " +
+                                "SET name = :name, email = :email, gender = :gender, version = version + 1, " +
+                                "revision = :revision " +
+                                "WHERE id = :id")
+                .bind("revision", StudentRevisionClock.next())
+                .bind("name", student.getName())
+                .bind("email", student.getEmail())
+                .bind("gender", student.getGender().name())
+                .bind("id", studentId)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Deletes the student and leaves a tombstone for the clients syncing the
+     * changes, see StudentSyncService, in one transaction.
+     *
+     * @return the number of deleted rows, 0 when the student does not exist
+     */
+    Mono<Integer> deleteById(Long studentId) {
+        return databaseClient.sql("DELETE FROM student WHERE id = :id")
+                .bind("id", studentId)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(deleted -> deleted == 0
+                        ? Mono.just(deleted)
+                        : databaseClient.sql(
+                                        "INSERT INTO student_tombstone (student_id, revision, deleted_at) " +
+                                                "VALUES (:id, :revision, :deletedAt)")
+                                .bind("id", studentId)
+                                .bind("revision", StudentRevisionClock.next())
+                                // in the time zone of the JVM, like the Instant Hibernate writes
+                                .bind("deletedAt", LocalDateTime.now())
+                                .then()
+                                .thenReturn(deleted))
+                .as(transactionalOperator::transactional);
+    }
+
+    private static Student toStudent(Row row) {
+        return new Student(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("email", String.class),
+                Gender.valueOf(row.get("gender", String.class)),
+                row.get("version", Long.class));
+    }
+}
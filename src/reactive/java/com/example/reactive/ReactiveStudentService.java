@@ -0,0 +1,90 @@
+package com.example.reactive;
+
+import com.example.demo.student.Student;
+import com.example.demo.student.StudentCursor;
+import com.example.demo.student.StudentPage;
+import com.example.demo.student.StudentPageRequest;
+import com.example.demo.student.exception.BadRequestException;
+import com.example.demo.student.exception.StudentNotFoundException;
+import io.r2dbc.spi.R2dbcException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * StudentService without blocking: every method returns at once and completes
+ * when the database answers, with the same exceptions and messages.
+ */
+@Service
+public class ReactiveStudentService {
+
+    // SQL standard state of unique constraint violations, used by PostgreSQL and H2
+    private static final String UNIQUE_VIOLATION_SQL_STATE = "23505";
+
+    private final ReactiveStudentRepository studentRepository;
+
+    ReactiveStudentService(ReactiveStudentRepository studentRepository) {
+        this.studentRepository = studentRepository;
+    }
+
+    public Mono<StudentPage<Student>> getStudents(StudentPageRequest pageRequest) {
+        return studentRepository.findPage(pageRequest)
+                .collectList()
+                .map(students -> toPage(students, pageRequest));
+    }
+
+    public Mono<Student> getStudent(Long studentId) {
+        return studentRepository.findById(studentId)
+                .switchIfEmpty(Mono.error(() -> notFound(studentId)));
+    }
+
+    public Mono<Student> addStudent(Student student) {
+        return studentRepository.insert(student)
+                .onErrorMap(ReactiveStudentService::isUniqueViolation,
+                        e -> new BadRequestException("Email " + student.getEmail() + " is taken"));
+    }
+
+    public Mono<Void> updateStudent(Long studentId, Student student) {
+        return studentRepository.update(studentId, student)
+                .onErrorMap(ReactiveStudentService::isUniqueViolation,
+                        e -> new BadRequestException("Email " + student.getEmail() + " is taken"))
+                .flatMap(updated -> updated == 0 ? Mono.error(notFound(studentId)) : Mono.empty());
+    }
+
+    public Mono<Void> deleteStudent(Long studentId) {
+        return studentRepository.deleteById(studentId)
+                .flatMap(deleted -> deleted == 0 ? Mono.error(notFound(studentId)) : Mono.empty());
+    }
+
+    private static StudentPage<Student> toPage(List<Student> students, StudentPageRequest pageRequest) {
+        if (students.size() <= pageRequest.getSize()) {
+            return new StudentPage<>(students, null);
+        }
+
+        // one row more than requested came back, so there is a next page
+        List<Student> content = students.subList(0, pageRequest.getSize());
+        Student last = content.get(content.size() - 1);
+        return new StudentPage<>(
+                content,
+                StudentCursor.after(pageRequest.getSortKey(), last).encode());
+    }
+
+    private static StudentNotFoundException notFound(Long studentId) {
+        return new StudentNotFoundException("Student with id " + studentId + " does not exist");
+    }
+
+    static boolean isUniqueViolation(Throwable e) {
+        if (!(e instanceof DataIntegrityViolationException)) {
+            return false;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof R2dbcException
+                    && UNIQUE_VIOLATION_SQL_STATE.equals(((R2dbcException) cause).getSqlState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
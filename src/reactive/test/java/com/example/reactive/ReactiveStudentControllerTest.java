@@ -0,0 +1,138 @@
+package com.example.reactive;
+
+import com.example.demo.student.Gender;
+import com.example.demo.student.Student;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(
+        classes = ReactiveDemoApplication.class,
+        properties = {
+                "spring.r2dbc.url=r2dbc:h2:mem:///reactive;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "spring.r2dbc.username=sa",
+                "spring.r2dbc.password=",
+                "spring.sql.init.mode=always",
+                "spring.sql.init.schema-locations=classpath:schema-reactive-h2.sql"
+        })
+@AutoConfigureWebTestClient
+@ActiveProfiles(ReactiveDemoApplication.PROFILE)
+class ReactiveStudentControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void setUp() {
+        databaseClient.sql("DELETE FROM student").then().block();
+    }
+
+    @Test
+    void canAddAndGetStudent() {
+        // when
+        webTestClient.post().uri("/api/v1/students")
+                .bodyValue(new Student("Anna", "anna@mail.com", Gender.FEMALE))
+                .exchange()
+                .expectStatus().isOk();
+
+        // then
+        List<Student> students = webTestClient.get().uri("/api/v1/students")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Student.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(students).hasSize(1);
+        Student anna = students.get(0);
+        assertThat(anna.getName()).isEqualTo("Anna");
+
+        webTestClient.get().uri("/api/v1/students/{id}", anna.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"0\"")
+                .expectBody(Student.class).isEqualTo(anna);
+    }
+
+    @Test
+    void shouldAdvertiseTheNextPage() {
+        // given
+        for (String name : List.of("Anna", "Bob", "Carl")) {
+            webTestClient.post().uri("/api/v1/students")
+                    .bodyValue(new Student(name, name.toLowerCase() + "@mail.com", Gender.OTHER))
+                    .exchange()
+                    .expectStatus().isOk();
+        }
+
+        // when
+        String link = webTestClient.get().uri("/api/v1/students?sort=name&size=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Student.class).hasSize(2)
+                .returnResult()
+                .getResponseHeaders()
+                .getFirst(HttpHeaders.LINK);
+
+        // then
+        assertThat(link).isNotNull().endsWith("rel=\"next\"");
+        String next = link.substring(1, link.indexOf('>'));
+        webTestClient.get().uri(next)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.LINK)
+                .expectBodyList(Student.class)
+                .value(students -> assertThat(students)
+                        .extracting(Student::getName)
+                        .containsExactly("Carl"));
+    }
+
+    @Test
+    void shouldRejectTakenEmail() {
+        // given
+        webTestClient.post().uri("/api/v1/students")
+                .bodyValue(new Student("Anna", "anna@mail.com", Gender.FEMALE))
+                .exchange()
+                .expectStatus().isOk();
+
+        // then
+        webTestClient.post().uri("/api/v1/students")
+                .bodyValue(new Student("Other Anna", "anna@mail.com", Gender.FEMALE))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Email anna@mail.com is taken");
+    }
+
+    @Test
+    void shouldRejectInvalidStudent() {
+        webTestClient.post().uri("/api/v1/students")
+                .bodyValue(new Student(" ", "anna@mail.com", Gender.FEMALE))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldAnswerNotFoundForUnknownStudent() {
+        webTestClient.get().uri("/api/v1/students/{id}", 404)
+                .exchange()
+                .expectStatus().isNotFound();
+        webTestClient.put().uri("/api/v1/students/{id}", 404)
+                .bodyValue(new Student("Anna", "anna@mail.com", Gender.FEMALE))
+                .exchange()
+                .expectStatus().isNotFound();
+        webTestClient.delete().uri("/api/v1/students/{id}", 404)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.reactive;
+
+import com.example.demo.DemoApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sends the same load to the servlet and to the reactive application and
+ * prints the throughput, the latencies and the server threads of each.
+ *
+ * Both applications run in this JVM against the PostgreSQL database of the
+ * integration tests, one after the other, so they compete for nothing but
+ * the database. Only correctness is asserted, the figures depend too much on
+ * the machine to make a reliable assertion. The load can be tuned with
+ * -Dcomparison.clients, -Dcomparison.requests and -Dcomparison.students.
+ */
+class StudentApiComparisonIT {
+
+    private static final int CLIENTS = Integer.getInteger("comparison.clients", 200);
+    private static final int REQUESTS_PER_CLIENT = Integer.getInteger("comparison.requests", 50);
+    private static final int STUDENTS = Integer.getInteger("comparison.students", 100);
+    // threads serving the requests, by name prefix
+    private static final List<String> SERVER_THREAD_PREFIXES = List.of(
+            "http-nio", "reactor-http", "reactor-tcp", "boundedElastic", "HikariPool");
+
+    private static ConfigurableApplicationContext servlet;
+    private static ConfigurableApplicationContext reactive;
+    private static final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    @BeforeAll
+    static void startApplications() {
+        // the servlet application first, its Hibernate creates the schema
+        servlet = new SpringApplicationBuilder(DemoApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .run("--server.port=0",
+                        "--spring.config.additional-location=classpath:application-it.properties",
+                        "--spring.jmx.enabled=false");
+        reactive = new SpringApplicationBuilder(ReactiveDemoApplication.class)
+                .profiles(ReactiveDemoApplication.PROFILE)
+                .web(WebApplicationType.REACTIVE)
+                .run("--server.port=0",
+                        "--spring.jmx.enabled=false");
+    }
+
+    @AfterAll
+    static void stopApplications() {
+        if (reactive != null) {
+            reactive.close();
+        }
+        if (servlet != null) {
+            servlet.close();
+        }
+    }
+
+    @Test
+    void compareUnderIdenticalLoad() throws Exception {
+        // given
+        String servletUrl = baseUrl(servlet);
+        String reactiveUrl = baseUrl(reactive);
+        for (int i = 0; i < STUDENTS; i++) {
+            String body = "{\"name\":\"Load Student " + i + "\"," +
+                    "\"email\":\"load-" + System.nanoTime() + "-" + i + "@comparison.test\"," +
+                    "\"gender\":\"OTHER\"}";
+            assertThat(send(HttpRequest.newBuilder(URI.create(servletUrl))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build())).isEqualTo(200);
+        }
+
+        // when
+        // warm up both, then measure each alone
+        run(servletUrl, CLIENTS, 5);
+        run(reactiveUrl, CLIENTS, 5);
+        Result servletResult = run(servletUrl, CLIENTS, REQUESTS_PER_CLIENT);
+        Result reactiveResult = run(reactiveUrl, CLIENTS, REQUESTS_PER_CLIENT);
+
+        // then
+        System.out.printf("%n%d clients x %d requests (list of %d students)%n",
+                CLIENTS, REQUESTS_PER_CLIENT, STUDENTS);
+        System.out.println("servlet  " + servletResult);
+        System.out.println("reactive " + reactiveResult);
+        assertThat(servletResult.failures).isZero();
+        assertThat(reactiveResult.failures).isZero();
+    }
+
+    private static Result run(String url, int clients, int requestsPerClient) throws Exception {
+        HttpRequest list = HttpRequest.newBuilder(URI.create(url + "?size=" + STUDENTS))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        Map<String, Integer> peakThreads = new ConcurrentHashMap<>();
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> countServerThreads()
+                        .forEach((prefix, count) -> peakThreads.merge(prefix, count, Math::max)),
+                0, 50, TimeUnit.MILLISECONDS);
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        long start = System.nanoTime();
+        int failures = 0;
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int client = 0; client < clients; client++) {
+                results.add(executor.submit(() -> {
+                    int failed = 0;
+                    for (int i = 0; i < requestsPerClient; i++) {
+                        long sent = System.nanoTime();
+                        if (send(list) != 200) {
+                            failed++;
+                        }
+                        latencies.add(System.nanoTime() - sent);
+                    }
+                    return failed;
+                }));
+            }
+            for (Future<Integer> result : results) {
+                failures += result.get();
+            }
+        } finally {
+            executor.shutdown();
+            sampler.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return new Result(
+                sorted.size() * 1e9 / elapsed,
+                percentile(sorted, 0.50),
+                percentile(sorted, 0.99),
+                failures,
+                new TreeMap<>(peakThreads));
+    }
+
+    private static int send(HttpRequest request) {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static Map<String, Integer> countServerThreads() {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            for (String prefix : SERVER_THREAD_PREFIXES) {
+                if (thread.getName().startsWith(prefix)) {
+                    counts.merge(prefix, 1, Integer::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.size()) - 1;
+        return sorted.get(Math.max(index, 0)) / 1e6;
+    }
+
+    private static String baseUrl(ConfigurableApplicationContext context) {
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        return "http://localhost:" + port + "/api/v1/students";
+    }
+
+    private static final class Result {
+
+        private final double throughput;
+        private final double p50Millis;
+        private final double p99Millis;
+        private final int failures;
+        // the threads of both applications are counted, only those of the one under load grow
+        private final Map<String, Integer> peakThreads;
+
+        private Result(double throughput, double p50Millis, double p99Millis,
+                       int failures, Map<String, Integer> peakThreads) {
+            this.throughput = throughput;
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+            this.failures = failures;
+            this.peakThreads = peakThreads;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%8.0f req/s  p50 %6.1f ms  p99 %6.1f ms  failures %d  peak threads %s",
+                    throughput, p50Millis, p99Millis, failures, peakThreads);
+        }
+    }
+}
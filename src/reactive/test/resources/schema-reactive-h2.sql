@@ -0,0 +1,17 @@
+-- the table Hibernate creates for Student, for the R2DBC tests on H2
+CREATE SEQUENCE IF NOT EXISTS student_sequence START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS student (
+    id       BIGINT       NOT NULL PRIMARY KEY,
+    name     VARCHAR(255) NOT NULL,
+    email    VARCHAR(255) NOT NULL UNIQUE,
+    gender   VARCHAR(255) NOT NULL,
+    version  BIGINT       DEFAULT 0 NOT NULL,
+    revision BIGINT       DEFAULT 0 NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS student_tombstone (
+    student_id BIGINT    NOT NULL PRIMARY KEY,
+    revision   BIGINT    NOT NULL,
+    deleted_at TIMESTAMP
+);
@@ -0,0 +1,65 @@
+package com.example.demo;
+
+import com.example.demo.student.Gender;
+import com.example.demo.student.Student;
+import com.example.demo.student.StudentRepository;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The application starts on a schema made by the migrations only: Hibernate
+ * validates it against the entities. H2 in PostgreSQL mode runs V1, the later
+ * migrations need PostgreSQL and are run by the integration tests.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:migrations;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;" +
+                "DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.flyway.enabled=true",
+        "spring.flyway.target=1",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+class SchemaMigrationTest {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Test
+    void shouldValidateTheMigratedSchema() {
+        // given
+        // the context started, so Hibernate found every table and column it maps
+
+        // when
+        Student saved = studentRepository.saveAndFlush(new Student("Anna", "anna@migrations.com", Gender.FEMALE));
+
+        // then
+        assertThat(flyway.info().current().getVersion().getVersion()).isEqualTo("1");
+        assertThat(studentRepository.findById(saved.getId())).contains(saved);
+    }
+
+    @Test
+    void shouldRerunOnASchemaCreatedByHibernate() {
+        // given
+        // the tables exist, as on a database created with ddl-auto=update
+        jdbcTemplate.execute("DELETE FROM flyway_schema_history WHERE version = '1'");
+
+        // when
+        flyway.migrate();
+
+        // then
+        assertThat(flyway.info().current().getVersion().getVersion()).isEqualTo("1");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT increment FROM information_schema.sequences WHERE sequence_name = 'student_sequence'",
+                Long.class)).isEqualTo(Student.ID_ALLOCATION_SIZE);
+    }
+}
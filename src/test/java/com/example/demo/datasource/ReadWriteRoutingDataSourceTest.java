@@ -0,0 +1,113 @@
+package com.example.demo.datasource;
+
+import com.example.demo.student.Gender;
+import com.example.demo.student.Student;
+import com.example.demo.student.StudentPageRequest;
+import com.example.demo.student.StudentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and a replica. Nothing
+ * replicates between them, so the students read tell which one was used.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "student.datasource.replicas[0].url=" + ReadWriteRoutingDataSourceTest.REPLICA_URL,
+        "student.datasource.lag-query=SELECT seconds FROM replica_lag",
+        "student.datasource.max-replica-lag=5s",
+        // the test checks the lag itself
+        "student.datasource.lag-check-interval-ms=3600000"
+})
+class ReadWriteRoutingDataSourceTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+
+    @Autowired
+    private StudentService studentService;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    private final JdbcTemplate replica = new JdbcTemplate(
+            new DriverManagerDataSource(REPLICA_URL, "sa", "sa"));
+
+    @BeforeEach
+    void setUp() {
+        replica.execute("DROP TABLE IF EXISTS student");
+        replica.execute("CREATE TABLE student (id BIGINT PRIMARY KEY, name VARCHAR(255) NOT NULL, " +
+                "email VARCHAR(255) NOT NULL UNIQUE, gender VARCHAR(255) NOT NULL, version BIGINT NOT NULL, " +
+                "revision BIGINT NOT NULL)");
+        replica.update("INSERT INTO student VALUES (1, 'Rita Replica', 'rita@replica.com', 'FEMALE', 0, 0)");
+        replica.execute("DROP TABLE IF EXISTS replica_lag");
+        replica.execute("CREATE TABLE replica_lag (seconds DOUBLE PRECISION)");
+    }
+
+    @Test
+    void shouldReadFromTheReplicaAndWriteToThePrimary() {
+        // given
+        replica.update("INSERT INTO replica_lag VALUES (0.5)");
+        replicaLagMonitor.checkLag();
+
+        // when
+        studentService.addStudent(new Student("Paul Primary", "paul@primary.com", Gender.MALE));
+
+        // then
+        assertThat(studentNames()).containsExactly("Rita Replica");
+        assertThat(replica.queryForObject("SELECT COUNT(*) FROM student", Integer.class)).isEqualTo(1);
+        assertThat(readsFromReplica()).isTrue();
+    }
+
+    @Test
+    void shouldReadFromThePrimaryWhenTheReplicaIsTooFarBehind() {
+        // given
+        studentService.addStudent(new Student("Pia Primary", "pia@primary.com", Gender.FEMALE));
+        replica.update("INSERT INTO replica_lag VALUES (0)");
+        replicaLagMonitor.checkLag();
+        assertThat(studentNames()).containsExactly("Rita Replica");
+
+        // when
+        replica.update("UPDATE replica_lag SET seconds = 60");
+        replicaLagMonitor.checkLag();
+
+        // then
+        assertThat(studentNames()).contains("Pia Primary").doesNotContain("Rita Replica");
+        assertThat(readsFromReplica()).isFalse();
+    }
+
+    @Test
+    void shouldReadFromThePrimaryWhenTheReplicaCannotBeChecked() {
+        // given
+        studentService.addStudent(new Student("Peter Primary", "peter@primary.com", Gender.MALE));
+        replica.execute("DROP TABLE replica_lag");
+
+        // when
+        replicaLagMonitor.checkLag();
+
+        // then
+        assertThat(studentNames()).contains("Peter Primary").doesNotContain("Rita Replica");
+    }
+
+    private boolean readsFromReplica() {
+        try (ReplicaReads reads = ReplicaReads.track()) {
+            studentNames();
+            return reads.routedToReplica();
+        }
+    }
+
+    private List<String> studentNames() {
+        return studentService.getStudents(StudentPageRequest.of("id", "asc", null, StudentPageRequest.MAX_SIZE))
+                .getContent().stream()
+                .map(Student::getName)
+                .collect(Collectors.toList());
+    }
+}
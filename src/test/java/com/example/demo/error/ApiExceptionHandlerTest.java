@@ -0,0 +1,88 @@
+package com.example.demo.error;
+
+import com.example.demo.student.StudentCollectionVersion;
+import com.example.demo.student.StudentController;
+import com.example.demo.student.StudentService;
+import com.example.demo.student.exception.StudentNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class ApiExceptionHandlerTest {
+
+    @Mock
+    private StudentService studentService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        StudentController controller = new StudentController(
+                studentService, new StudentCollectionVersion(Duration.ofMinutes(1)));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new ApiExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void shouldAnswerBusinessExceptionWithProblem() throws Exception {
+        // given
+        given(studentService.getStudent(42L))
+                .willThrow(new StudentNotFoundException("Student with id 42 does not exist"));
+
+        // then
+        mockMvc.perform(get("/api/v1/students/42"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.type").value("about:blank"))
+                .andExpect(jsonPath("$.title").value("Not Found"))
+                .andExpect(jsonPath("$.status").value(404))
+                .andExpect(jsonPath("$.detail").value("Student with id 42 does not exist"))
+                .andExpect(jsonPath("$.instance").value("/api/v1/students/42"));
+    }
+
+    @Test
+    void shouldAnswerValidationFailureWithProblem() throws Exception {
+        mockMvc.perform(post("/api/v1/students")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\" \",\"email\":\"anna@mail.com\",\"gender\":\"FEMALE\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.detail").value("The name must not be blank.\n"));
+    }
+
+    @Test
+    void shouldNotExposeNestedExceptions() throws Exception {
+        String detail = mockMvc.perform(post("/api/v1/students")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{not json"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        assertThat(detail).doesNotContain("nested exception", "com.fasterxml");
+    }
+
+    @Test
+    void businessExceptionsHaveNoStackTrace() {
+        assertThat(new StudentNotFoundException("gone").getStackTrace()).isEmpty();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.demo.error;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.servlet.RequestDispatcher;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ErrorControllerImplTest {
+
+    private final ErrorControllerImpl underTest = new ErrorControllerImpl();
+
+    @Test
+    void shouldServeTheFrontendForOtherPaths() {
+        // given
+        MockHttpServletRequest request = errorRequest("/students", 404, null);
+
+        // when
+        ModelAndView result = underTest.error(request);
+
+        // then
+        assertThat(result.getViewName()).isEqualTo("forward:/index.html");
+    }
+
+    @Test
+    void shouldRenderProblemForUnknownApiPath() throws Exception {
+        // given
+        MockHttpServletRequest request = errorRequest("/api/v1/nope", 404, null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // when
+        ModelAndView result = underTest.error(request);
+        result.getView().render(result.getModel(), request, response);
+
+        // then
+        assertThat(result.getStatus()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(response.getContentType()).startsWith("application/problem+json");
+        assertThat(response.getContentAsString())
+                .contains("\"title\":\"Not Found\"", "\"status\":404", "\"instance\":\"/api/v1/nope\"");
+    }
+
+    @Test
+    void shouldNotDetailInternalErrors() {
+        // given
+        MockHttpServletRequest request = errorRequest("/api/v1/students", 500, "connection refused");
+
+        // when
+        Map<String, Object> model = underTest.error(request).getModel();
+
+        // then
+        Problem problem = (Problem) model.get("problem");
+        assertThat(problem.getStatus()).isEqualTo(500);
+        assertThat(problem.getDetail()).isNull();
+    }
+
+    private static MockHttpServletRequest errorRequest(String path, int status, String message) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/error");
+        request.setAttribute(RequestDispatcher.ERROR_REQUEST_URI, path);
+        request.setAttribute(RequestDispatcher.ERROR_STATUS_CODE, status);
+        request.setAttribute(RequestDispatcher.ERROR_MESSAGE, message);
+        return request;
+    }
+}
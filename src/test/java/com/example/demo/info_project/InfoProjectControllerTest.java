@@ -0,0 +1,84 @@
+package com.example.demo.info_project;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class InfoProjectControllerTest {
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new InfoProjectController()).build();
+    }
+
+    @Test
+    void shouldServeDiagramWithCacheHeaders() throws Exception {
+        mockMvc.perform(get("/api/v1/about-project"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/jpeg"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=3600, public"))
+                .andExpect(header().exists(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void shouldAnswerNotModifiedToMatchingETag() throws Exception {
+        // given
+        String eTag = mockMvc.perform(get("/api/v1/about-project"))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        // then
+        MvcResult result = mockMvc.perform(get("/api/v1/about-project")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andReturn();
+        assertThat(result.getResponse().getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void shouldServeByteRanges() throws Exception {
+        // given
+        InfoProjectController controller = new InfoProjectController(
+                new ByteArrayResource("0123456789".getBytes()) {
+                    @Override
+                    public String getFilename() {
+                        return "diagram.jpg";
+                    }
+                });
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        // then
+        mockMvc.perform(get("/api/v1/about-project")
+                        .header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                .andExpect(content().string("2345"));
+    }
+
+    @Test
+    void shouldAnswerNotFoundWithoutDiagram() throws Exception {
+        mockMvc = MockMvcBuilders.standaloneSetup(new InfoProjectController(
+                new ByteArrayResource(new byte[0]) {
+                    @Override
+                    public boolean exists() {
+                        return false;
+                    }
+                })).build();
+
+        mockMvc.perform(get("/api/v1/about-project"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.demo.integration;
 
+import com.example.demo.sql.SqlStatementCounter;
+import com.example.demo.sql.SqlStatementStats;
 import com.example.demo.student.Gender;
 import com.example.demo.student.Student;
 import com.example.demo.student.StudentRepository;
@@ -76,16 +78,20 @@ public class StudentIT {
         Student student = createStudent();
 
         // when
-        ResultActions resultActions = mockMvc
+        SqlStatementStats statements = SqlStatementCounter.count(() -> mockMvc
                 .perform(post("/api/v1/students")
                         .contentType(MediaType.APPLICATION_JSON)
-                        .content(objectMapper.writeValueAsString(student)));
-        // then
-        resultActions.andExpect(status().isOk());
+                        .content(objectMapper.writeValueAsString(student)))
+                // then
+                .andExpect(status().isOk()));
+        // a single INSERT, the email is checked by the unique constraint
+        // (the ids are allocated by blocks, the sequence is only read once in a while)
+        assertThat(statements.count(SqlStatementStats.Type.INSERT)).isEqualTo(1);
+        assertThat(statements.count(SqlStatementStats.Type.UPDATE)).isZero();
         // Check that the student is entered in the database
         List<Student> students = studentRepository.findAll();
         assertThat(students)
-                .usingElementComparatorIgnoringFields("id")
+                .usingElementComparatorIgnoringFields("id", "version")
                 .contains(student);
     }
 
@@ -105,7 +111,7 @@ public class StudentIT {
             // Check that the student is entered in the database
             List<Student> students = studentRepository.findAll();
             assertThat(students)
-                    .usingElementComparatorIgnoringFields("id")
+                    .usingElementComparatorIgnoringFields("id", "version")
                     .contains(student);
         }
     }
@@ -141,8 +147,8 @@ public class StudentIT {
                         .content(objectMapper.writeValueAsString(student)))
                 .andExpect(status().isOk());
 
-        // retrieve result data
-        MvcResult getStudentsResult = mockMvc.perform(get("/api/v1/students")
+        // retrieve result data, newest students first since the listing is paginated
+        MvcResult getStudentsResult = mockMvc.perform(get("/api/v1/students?sort=id&direction=desc")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andReturn();
@@ -187,8 +193,8 @@ public class StudentIT {
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(student)));
 
-        // retrieve result data
-        MvcResult getStudentsResult = mockMvc.perform(get("/api/v1/students")
+        // retrieve result data, newest students first since the listing is paginated
+        MvcResult getStudentsResult = mockMvc.perform(get("/api/v1/students?sort=id&direction=desc")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andReturn();
@@ -233,4 +239,77 @@ public class StudentIT {
         assertThat(updatedStudent.getEmail()).isEqualTo(newDataForStudent.getEmail());
         assertThat(updatedStudent.getGender()).isEqualTo(newDataForStudent.getGender());
     }
+
+    @Test
+    void canPatchStudentWithMatchingETagOnly() throws Exception {
+        // given
+        Student student = createStudent();
+        mockMvc.perform(post("/api/v1/students")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(student)))
+                .andExpect(status().isOk());
+        long id = studentRepository.findAll().stream()
+                .filter(s -> s.getEmail().equals(student.getEmail()))
+                .map(Student::getId)
+                .findFirst()
+                .orElseThrow();
+
+        String eTag = mockMvc.perform(get("/api/v1/students/" + id))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+
+        // when
+        // patch only the name, with the current ETag
+        ResultActions resultActions = mockMvc.perform(patch("/api/v1/students/" + id)
+                .header("If-Match", eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Patched Name\"}"));
+
+        // then
+        resultActions.andExpect(status().isNoContent());
+        Student patched = studentRepository.findById(id).orElseThrow();
+        assertThat(patched.getName()).isEqualTo("Patched Name");
+        assertThat(patched.getEmail()).isEqualTo(student.getEmail());
+
+        // a second writer still holding the old ETag is refused
+        mockMvc.perform(patch("/api/v1/students/" + id)
+                        .header("If-Match", eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Lost Update\"}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void canSearchStudentsByEmailDomain() throws Exception {
+        // given
+        Student student = createStudent();
+        mockMvc.perform(post("/api/v1/students")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(student)))
+                .andExpect(status().isOk());
+        String domain = student.getEmail().substring(student.getEmail().indexOf('@') + 1);
+
+        // when
+        // the domain is matched case-insensitively, newest students first
+        String contentAsString = mockMvc.perform(get("/api/v1/students/search")
+                        .param("emailDomain", domain.toUpperCase())
+                        .param("sort", "id")
+                        .param("direction", "desc"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        // then
+        List<Student> students = objectMapper.readValue(
+                contentAsString,
+                new TypeReference<>() {
+                }
+        );
+        assertThat(students).isNotEmpty();
+        assertThat(students).allMatch(s -> s.getEmail().toLowerCase().endsWith("@" + domain));
+        assertThat(students).extracting(Student::getEmail).contains(student.getEmail());
+    }
 }
@@ -0,0 +1,69 @@
+package com.example.demo.load;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Share of each operation in the generated traffic, given as weights, e.g.
+ * "list=70,create=10,update=15,delete=5".
+ */
+class LoadMix {
+
+    enum Operation {
+        LIST,
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+
+    private final Map<Operation, Integer> weights;
+    private final int totalWeight;
+
+    private LoadMix(Map<Operation, Integer> weights) {
+        this.weights = weights;
+        this.totalWeight = weights.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    static LoadMix parse(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] operationAndWeight = entry.trim().split("=");
+            if (operationAndWeight.length != 2) {
+                throw new IllegalArgumentException("Expected operation=weight, got: " + entry);
+            }
+            Operation operation = Operation.valueOf(operationAndWeight[0].trim().toUpperCase(Locale.ROOT));
+            int weight = Integer.parseInt(operationAndWeight[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight for " + operation);
+            }
+            weights.put(operation, weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("The load mix has no operation: " + mix);
+        }
+        return new LoadMix(weights);
+    }
+
+    Operation next() {
+        int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> weight : weights.entrySet()) {
+            pick -= weight.getValue();
+            if (pick < 0) {
+                return weight.getKey();
+            }
+        }
+        throw new IllegalStateException("unreachable");
+    }
+
+    // the expected fraction of the requests that are of this operation
+    double share(Operation operation) {
+        return weights.getOrDefault(operation, 0) / (double) totalWeight;
+    }
+
+    @Override
+    public String toString() {
+        return weights.toString();
+    }
+}
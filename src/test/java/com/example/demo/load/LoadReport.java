@@ -0,0 +1,171 @@
+package com.example.demo.load;
+
+import com.example.demo.load.LoadMix.Operation;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Latencies and failures of a load run, per operation, and their comparison
+ * with the figures of a baseline run.
+ */
+class LoadReport {
+
+    static final double[] PERCENTILES = {0.50, 0.95, 0.99};
+    // the load, machine, JVM and database a baseline was measured with, not a figure
+    static final String ENVIRONMENT = "environment";
+
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private long elapsedNanos;
+
+    /**
+     * Latencies of one operation, recorded by a single client thread and
+     * merged into the report afterwards.
+     */
+    static class Recorder {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private int failures;
+
+        void record(long latencyNanos, boolean failed) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            if (failed) {
+                failures++;
+            }
+        }
+
+        private void addAll(Recorder other) {
+            for (int i = 0; i < other.count; i++) {
+                record(other.latencies[i], false);
+            }
+            failures += other.failures;
+        }
+
+        private long percentile(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            // nearest rank, on a sorted copy
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(quantile * count);
+            return sorted[Math.max(rank, 1) - 1];
+        }
+    }
+
+    synchronized void merge(Map<Operation, Recorder> clientRecorders) {
+        clientRecorders.forEach((operation, recorder) ->
+                recorders.computeIfAbsent(operation, key -> new Recorder()).addAll(recorder));
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    int failures() {
+        return recorders.values().stream().mapToInt(recorder -> recorder.failures).sum();
+    }
+
+    /**
+     * The figures that are compared between runs: the throughput of the whole
+     * run and the latency percentiles, in milliseconds, of each operation.
+     */
+    Map<String, Double> figures() {
+        Map<String, Double> figures = new TreeMap<>();
+        long requests = recorders.values().stream().mapToLong(recorder -> recorder.count).sum();
+        figures.put("throughput", elapsedNanos == 0 ? 0 : requests * 1e9 / elapsedNanos);
+        recorders.forEach((operation, recorder) -> {
+            for (double percentile : PERCENTILES) {
+                figures.put(latencyKey(operation, percentile), recorder.percentile(percentile) / 1e6);
+            }
+        });
+        return figures;
+    }
+
+    /**
+     * @return one line per figure that is worse than the baseline by more than
+     * the threshold (0.25 allows 25%), empty when the run is as good
+     */
+    List<String> regressionsAgainst(Map<String, Double> baseline, double threshold) {
+        List<String> regressions = new ArrayList<>();
+        figures().forEach((key, value) -> {
+            Double before = baseline.get(key);
+            if (before == null || before == 0) {
+                return;
+            }
+            // a higher throughput is better, lower latencies are
+            boolean worse = key.equals("throughput")
+                    ? value < before * (1 - threshold)
+                    : value > before * (1 + threshold);
+            if (worse) {
+                regressions.add(String.format(Locale.ROOT, "%s: %.2f, baseline %.2f", key, value, before));
+            }
+        });
+        return regressions;
+    }
+
+    static Map<String, Double> readBaseline(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        Map<String, Double> baseline = new TreeMap<>();
+        properties.stringPropertyNames().stream()
+                .filter(key -> !key.equals(ENVIRONMENT))
+                .forEach(key -> baseline.put(key, Double.parseDouble(properties.getProperty(key))));
+        return baseline;
+    }
+
+    // null for a baseline that does not say where it was measured
+    static String readEnvironment(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        return properties.getProperty(ENVIRONMENT);
+    }
+
+    void writeBaseline(Path file, String environment, String comment) throws IOException {
+        Properties properties = new Properties();
+        figures().forEach((key, value) -> properties.setProperty(key, String.format(Locale.ROOT, "%.3f", value)));
+        properties.setProperty(ENVIRONMENT, environment);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            properties.store(writer, comment);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT,
+                "%-8s %9s %9s %10s %10s %10s%n", "", "requests", "failures", "p50 ms", "p95 ms", "p99 ms"));
+        recorders.forEach((operation, recorder) -> report.append(String.format(Locale.ROOT,
+                "%-8s %9d %9d %10.2f %10.2f %10.2f%n",
+                operation.name().toLowerCase(Locale.ROOT), recorder.count, recorder.failures,
+                recorder.percentile(0.50) / 1e6, recorder.percentile(0.95) / 1e6,
+                recorder.percentile(0.99) / 1e6)));
+        report.append(String.format(Locale.ROOT, "throughput %.0f requests/s%n", figures().get("throughput")));
+        return report.toString();
+    }
+
+    private static String latencyKey(Operation operation, double percentile) {
+        return operation.name().toLowerCase(Locale.ROOT) + ".p" + Math.round(percentile * 100) + ".ms";
+    }
+}
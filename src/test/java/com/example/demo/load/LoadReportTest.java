@@ -0,0 +1,82 @@
+package com.example.demo.load;
+
+import com.example.demo.load.LoadMix.Operation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoadReportTest {
+
+    @Test
+    void shouldComputeNearestRankPercentiles() {
+        // given
+        LoadReport report = reportOfListLatencies(100);
+
+        // when
+        Map<String, Double> figures = report.figures();
+
+        // then
+        assertThat(figures.get("list.p50.ms")).isEqualTo(50.0);
+        assertThat(figures.get("list.p95.ms")).isEqualTo(95.0);
+        assertThat(figures.get("list.p99.ms")).isEqualTo(99.0);
+        assertThat(figures.get("throughput")).isEqualTo(100.0);
+    }
+
+    @Test
+    void shouldReportFiguresWorseThanThreshold() {
+        // given
+        LoadReport report = reportOfListLatencies(100);
+        Map<String, Double> baseline = Map.of(
+                "throughput", 200.0,
+                "list.p50.ms", 45.0,
+                "list.p99.ms", 70.0);
+
+        // then
+        assertThat(report.regressionsAgainst(baseline, 0.25))
+                .hasSize(2)
+                .anySatisfy(regression -> assertThat(regression).startsWith("throughput"))
+                .anySatisfy(regression -> assertThat(regression).startsWith("list.p99.ms"));
+    }
+
+    @Test
+    void shouldKeepTheEnvironmentOfABaselineApartFromItsFigures(@TempDir Path directory) throws IOException {
+        // given
+        Path baseline = directory.resolve("ci.properties");
+        reportOfListLatencies(100).writeBaseline(baseline, "4 cpus, Linux amd64, H2", "test");
+
+        // when
+        Map<String, Double> figures = LoadReport.readBaseline(baseline);
+
+        // then
+        assertThat(figures).containsEntry("list.p50.ms", 50.0).doesNotContainKey(LoadReport.ENVIRONMENT);
+        assertThat(LoadReport.readEnvironment(baseline)).isEqualTo("4 cpus, Linux amd64, H2");
+    }
+
+    @Test
+    void shouldRejectInvalidMix() {
+        assertThat(LoadMix.parse("list=1,create=0").next()).isEqualTo(Operation.LIST);
+        assertThatThrownBy(() -> LoadMix.parse("list=0")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LoadMix.parse("browse=1")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // latencies of 1 to count ms, over one second
+    private static LoadReport reportOfListLatencies(int count) {
+        LoadReport.Recorder recorder = new LoadReport.Recorder();
+        for (int i = count; i > 0; i--) {
+            recorder.record(i * 1_000_000L, false);
+        }
+        Map<Operation, LoadReport.Recorder> recorders = new EnumMap<>(Operation.class);
+        recorders.put(Operation.LIST, recorder);
+        LoadReport report = new LoadReport();
+        report.merge(recorders);
+        report.setElapsedNanos(1_000_000_000L);
+        return report;
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.demo.load;
+
+import com.example.demo.load.LoadMix.Operation;
+import com.example.demo.student.Gender;
+import com.example.demo.student.Student;
+import com.example.demo.student.StudentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.DatabaseMetaData;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives a mix of list, create, update and delete requests against
+ * api/v1/students from concurrent clients, over HTTP on a random port, and
+ * reports the throughput and the p50/p95/p99 latencies of each operation.
+ *
+ * The run fails when a figure is worse than the baseline by more than the
+ * threshold. Absolute latencies only compare on the same hardware, so the
+ * baseline file is given per environment with -Dload.baseline, and a baseline
+ * measured with another load, machine, JVM or database is refused. With
+ * -Dload.update-baseline=true the figures of the run become the baseline instead.
+ *
+ * Runs on the H2 database of the tests by default, on a local Postgres with
+ * -Dspring.config.additional-location=classpath:application-it.properties.
+ * Only run by the load-test Maven profile, see the README.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class StudentLoadIT {
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 16);
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("load.warmup-seconds", 5));
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("load.duration-seconds", 20));
+    private static final int SEED_STUDENTS = Integer.getInteger("load.seed-students", 1000);
+    private static final LoadMix MIX = LoadMix.parse(
+            System.getProperty("load.mix", "list=70,create=10,update=15,delete=5"));
+    private static final String BASELINE = System.getProperty("load.baseline");
+    // 0.25 tolerates figures up to 25% worse than the baseline
+    private static final double THRESHOLD = Double.parseDouble(System.getProperty("load.threshold", "0.25"));
+    private static final boolean UPDATE_BASELINE = Boolean.getBoolean("load.update-baseline");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    // the seeded students, each client updates and deletes its own share to avoid conflicts;
+    // a client deletes the last of its ids, updates any other
+    private final List<List<Long>> studentIdsByClient = new ArrayList<>();
+    private final AtomicLong emails = new AtomicLong();
+    // tells the runs of this JVM apart, the database may be reused between runs
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    @Test
+    void studentApiMeetsBaseline() throws Exception {
+        // given
+        assertThat(BASELINE)
+                .as("-Dload.baseline, the baseline file of the environment this run is on")
+                .isNotNull();
+        Path baseline = Paths.get(BASELINE);
+        String environment = environment();
+        if (!UPDATE_BASELINE) {
+            // before spending the run
+            assertThat(baseline)
+                    .as("baseline, written by a run with -Dload.update-baseline=true")
+                    .exists();
+            assertThat(LoadReport.readEnvironment(baseline))
+                    .as("environment %s was measured in", baseline)
+                    .isEqualTo(environment);
+        }
+        seed();
+        LoadReport warmup = new LoadReport();
+        run(WARMUP, warmup);
+        reserveStudentsToDelete(warmup);
+
+        // when
+        LoadReport report = new LoadReport();
+        run(DURATION, report);
+
+        // then
+        System.out.printf("%n%d clients for %s, mix %s%n%s", CLIENTS, DURATION, MIX, report);
+        assertThat(report.failures()).as("failed requests").isZero();
+
+        if (UPDATE_BASELINE) {
+            report.writeBaseline(baseline, environment, "measured by StudentLoadIT");
+            System.out.println("Baseline written to " + baseline.toAbsolutePath());
+            return;
+        }
+        List<String> regressions = report.regressionsAgainst(LoadReport.readBaseline(baseline), THRESHOLD);
+        assertThat(regressions)
+                .as("figures more than %.0f%% worse than %s", THRESHOLD * 100, baseline)
+                .isEmpty();
+    }
+
+    // what the figures depend on besides the code: the load, the machine, the JVM and the database
+    private String environment() throws MetaDataAccessException {
+        String database = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        return String.format(Locale.ROOT, "%d clients, mix %s, %d cpus, %s %s, %s %s, %s",
+                CLIENTS, MIX, Runtime.getRuntime().availableProcessors(),
+                System.getProperty("os.name"), System.getProperty("os.arch"),
+                System.getProperty("java.vm.name"), System.getProperty("java.vm.version"),
+                database);
+    }
+
+    private void seed() {
+        // at least two per client, one to delete and one to update
+        int count = Math.max(SEED_STUDENTS, 2 * CLIENTS);
+        List<Student> students = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            students.add(newStudent());
+        }
+        for (int i = 0; i < CLIENTS; i++) {
+            studentIdsByClient.add(new ArrayList<>());
+        }
+        int i = 0;
+        for (Student student : studentRepository.saveAll(students)) {
+            studentIdsByClient.get(i++ % CLIENTS).add(student.getId());
+        }
+    }
+
+    /**
+     * Tops up the students of each client between the warmup and the measured
+     * run, for twice the deletions expected at the throughput of the warmup,
+     * so that no insert happens in the measured time.
+     */
+    private void reserveStudentsToDelete(LoadReport warmup) {
+        double deletions = warmup.figures().get("throughput") * DURATION.toSeconds() * MIX.share(Operation.DELETE);
+        int perClient = (int) Math.ceil(2 * deletions / CLIENTS) + 1;
+        List<Student> students = new ArrayList<>();
+        List<List<Long>> shortClients = new ArrayList<>();
+        for (List<Long> ids : studentIdsByClient) {
+            for (int i = ids.size(); i < perClient; i++) {
+                students.add(newStudent());
+                shortClients.add(ids);
+            }
+        }
+        int i = 0;
+        for (Student student : studentRepository.saveAll(students)) {
+            shortClients.get(i++).add(student.getId());
+        }
+    }
+
+    private void run(Duration duration, LoadReport report) throws Exception {
+        Instant end = Instant.now().plus(duration);
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        long start = System.nanoTime();
+        try {
+            List<Future<Map<Operation, LoadReport.Recorder>>> results = new ArrayList<>();
+            for (List<Long> ids : studentIdsByClient) {
+                results.add(clients.submit(() -> client(end, ids)));
+            }
+            for (Future<Map<Operation, LoadReport.Recorder>> result : results) {
+                report.merge(result.get());
+            }
+        } finally {
+            clients.shutdown();
+        }
+        report.setElapsedNanos(System.nanoTime() - start);
+    }
+
+    private Map<Operation, LoadReport.Recorder> client(Instant end, List<Long> ids) {
+        Map<Operation, LoadReport.Recorder> recorders = new EnumMap<>(Operation.class);
+        while (Instant.now().isBefore(end)) {
+            Operation operation = MIX.next();
+            HttpRequest request = request(operation, ids);
+            long sent = System.nanoTime();
+            int status = send(request);
+            long latency = System.nanoTime() - sent;
+            recorders.computeIfAbsent(operation, key -> new LoadReport.Recorder())
+                    .record(latency, status != 200);
+        }
+        return recorders;
+    }
+
+    private HttpRequest request(Operation operation, List<Long> ids) {
+        if (operation == Operation.DELETE && ids.size() < 2) {
+            throw new IllegalStateException("A client ran out of students to delete, raise load.seed-students");
+        }
+        switch (operation) {
+            case LIST:
+                return HttpRequest.newBuilder(uri("?size=50&sort=name")).GET().build();
+            case CREATE:
+                return HttpRequest.newBuilder(uri(""))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(json(newStudent())))
+                        .build();
+            case UPDATE:
+                long id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+                return HttpRequest.newBuilder(uri("/" + id))
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofString(json(newStudent())))
+                        .build();
+            case DELETE:
+                return HttpRequest.newBuilder(uri("/" + ids.remove(ids.size() - 1))).DELETE().build();
+            default:
+                throw new IllegalArgumentException("Unsupported operation " + operation);
+        }
+    }
+
+    private int send(HttpRequest request) {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private Student newStudent() {
+        long i = emails.incrementAndGet();
+        return new Student("Load Student " + i, "load-" + runId + "-" + i + "@load.test",
+                Gender.values()[(int) (i % Gender.values().length)]);
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + "/api/v1/students" + path);
+    }
+
+    private static String json(Student student) {
+        return "{\"name\":\"" + student.getName() + "\","
+                + "\"email\":\"" + student.getEmail() + "\","
+                + "\"gender\":\"" + student.getGender() + "\"}";
+    }
+}
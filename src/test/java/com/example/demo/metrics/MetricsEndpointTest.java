@@ -0,0 +1,59 @@
+package com.example.demo.metrics;
+
+import com.example.demo.student.Gender;
+import com.example.demo.student.Student;
+import com.example.demo.student.StudentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "management.endpoints.web.exposure.include=prometheus",
+        "management.metrics.distribution.percentiles-histogram.student.service=true",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+class MetricsEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StudentService studentService;
+
+    @Test
+    void shouldExposeServiceRepositoryPoolAndHibernateMetrics() throws Exception {
+        // given
+        studentService.addStudent(new Student("Anna", "anna.metrics@mail.com", Gender.FEMALE));
+        mockMvc.perform(get("/api/v1/students")).andExpect(status().isOk());
+
+        // when
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        // then
+        assertThat(scrape)
+                .contains("student_service_seconds_bucket{class=\"com.example.demo.student.StudentService\"," +
+                        "exception=\"none\",method=\"addStudent\"")
+                .contains("spring_data_repository_invocations_seconds_count{exception=\"None\",method=\"saveAndFlush\"," +
+                        "repository=\"StudentRepository\"")
+                .contains("http_server_requests_seconds_count{exception=\"None\",method=\"GET\"," +
+                        "outcome=\"SUCCESS\",status=\"200\",uri=\"/api/v1/students\"")
+                .contains("hikaricp_connections_active")
+                .contains("hibernate_entities_inserts_total")
+                .contains("hibernate_flushes_total")
+                // the startup time to track across releases
+                .contains("application_ready_time_seconds");
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.demo.sql;
+
+import com.example.demo.sql.SqlStatementStats.Type;
+import com.example.demo.student.Gender;
+import com.example.demo.student.Student;
+import com.example.demo.student.StudentRepository;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class SqlStatementCounterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Test
+    void shouldCountASingleInsertToCreateAStudent() throws Exception {
+        // when
+        SqlStatementStats stats = SqlStatementCounter.count(() -> mockMvc
+                .perform(post("/api/v1/students")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Anna\",\"email\":\"anna.sql@mail.com\",\"gender\":\"FEMALE\"}"))
+                .andExpect(status().isOk()));
+
+        // then
+        assertThat(stats.count(Type.INSERT)).isEqualTo(1);
+        assertThat(stats.count(Type.UPDATE)).isZero();
+        assertThat(stats.count(Type.DELETE)).isZero();
+    }
+
+    @Test
+    void shouldAddTheStatementsOfAnInnerScopeToTheOuterOne() throws Exception {
+        // given
+        Student student = studentRepository.save(new Student("Paul", "paul.sql@mail.com", Gender.MALE));
+
+        // when
+        SqlStatementStats outer = SqlStatementCounter.start();
+        SqlStatementStats inner = SqlStatementCounter.count(() -> mockMvc
+                .perform(get("/api/v1/students/" + student.getId()))
+                .andExpect(status().isOk()));
+        studentRepository.count();
+        SqlStatementStats total = SqlStatementCounter.stop(outer);
+
+        // then
+        assertThat(inner.count(Type.SELECT)).isPositive();
+        assertThat(total.count(Type.SELECT)).isEqualTo(inner.count(Type.SELECT) + 1);
+    }
+
+    @Test
+    void shouldNotCountOutsideOfAScope() {
+        // when
+        studentRepository.count();
+
+        // then
+        SqlStatementStats outer = SqlStatementCounter.start();
+        assertThat(SqlStatementCounter.stop(outer).total()).isZero();
+    }
+
+    @Test
+    void shouldReportARepeatedSelect() {
+        // given
+        SqlStatementStats stats = new SqlStatementStats();
+        for (int i = 0; i < 5; i++) {
+            stats.add(Type.SELECT, "select * from student where id=?");
+        }
+        stats.add(Type.SELECT, "select count(*) from student");
+
+        // then
+        assertThat(stats.mostRepeatedSelect(6)).isEmpty();
+        assertThat(stats.mostRepeatedSelect(5)).hasValueSatisfying(select -> {
+            assertThat(select.getKey()).isEqualTo("select * from student where id=?");
+            assertThat(select.getValue()).isEqualTo(5);
+        });
+    }
+
+    @Test
+    void shouldTellTheTypeOfAStatement() {
+        assertThat(SqlInspectionListener.type("  select id from student")).isEqualTo(Type.SELECT);
+        assertThat(SqlInspectionListener.type("with s as (select 1) select * from s")).isEqualTo(Type.SELECT);
+        assertThat(SqlInspectionListener.type("insert into student values (?)")).isEqualTo(Type.INSERT);
+        assertThat(SqlInspectionListener.type("UPDATE student SET name=?")).isEqualTo(Type.UPDATE);
+        assertThat(SqlInspectionListener.type("delete from student")).isEqualTo(Type.DELETE);
+        assertThat(SqlInspectionListener.type("call next value for student_sequence")).isEqualTo(Type.OTHER);
+    }
+
+    @Test
+    void shouldSampleTheParametersOfTheFirstExecution() throws Exception {
+        // given
+        SqlInspectionListener listener = new SqlInspectionListener(0, 2, 5);
+        QueryInfo query = new QueryInfo("insert into student values (?, ?, ?)");
+        query.setParametersList(List.of(
+                List.of(set("setString", String.class, 1, "Anna Smith"),
+                        set("setNull", int.class, 2, Types.VARCHAR),
+                        set("setString", String.class, 3, "FEMALE")),
+                List.of(set("setString", String.class, 1, "Bob"))));
+
+        // when
+        String sample = listener.sampleParameters(query);
+
+        // then
+        assertThat(sample).isEqualTo("[Anna ..., null]");
+    }
+
+    private static ParameterSetOperation set(String setter, Class<?> valueType, int index, Object value)
+            throws NoSuchMethodException {
+        return new ParameterSetOperation(PreparedStatement.class.getMethod(setter, int.class, valueType),
+                new Object[]{index, value});
+    }
+}
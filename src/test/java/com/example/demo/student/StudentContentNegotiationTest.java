@@ -0,0 +1,161 @@
+package com.example.demo.student;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.protobuf.CodedInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:formats;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "server.compression.enabled=true",
+        "server.compression.min-response-size=2KB",
+        "server.compression.mime-types=application/json,application/cbor,application/x-protobuf"
+})
+class StudentContentNegotiationTest {
+
+    private static final TypeReference<List<Student>> STUDENT_LIST = new TypeReference<>() {
+    };
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final List<Student> students = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < StudentPageRequest.DEFAULT_SIZE; i++) {
+            students.add(new Student("Student " + i, "student" + i + "@formats.com",
+                    Gender.values()[i % Gender.values().length]));
+        }
+        studentRepository.saveAll(students);
+    }
+
+    @AfterEach
+    void tearDown() {
+        studentRepository.deleteAll();
+    }
+
+    @Test
+    void shouldAnswerJsonByDefault() throws Exception {
+        // when
+        HttpResponse<byte[]> response = get("", "*/*", null);
+
+        // then
+        assertThat(response.headers().firstValue("Content-Type")).hasValueSatisfying(
+                contentType -> assertThat(contentType).startsWith("application/json"));
+        // Tomcat merges the Vary header of the compression into the one of the controller
+        assertThat(String.join(",", response.headers().allValues("Vary")).toLowerCase()).contains("accept");
+        assertThat(new ObjectMapper().readValue(response.body(), STUDENT_LIST)).isEqualTo(students);
+    }
+
+    @Test
+    void shouldAnswerCborAndSmile() throws Exception {
+        // when
+        HttpResponse<byte[]> cbor = get("", "application/cbor", null);
+        HttpResponse<byte[]> smile = get("/" + students.get(0).getId(), "application/x-jackson-smile", null);
+
+        // then
+        assertThat(cbor.headers().firstValue("Content-Type")).hasValue("application/cbor");
+        assertThat(new ObjectMapper(new CBORFactory()).readValue(cbor.body(), STUDENT_LIST))
+                .isEqualTo(students);
+        assertThat(new ObjectMapper(new SmileFactory()).readValue(smile.body(), Student.class))
+                .isEqualTo(students.get(0));
+    }
+
+    @Test
+    void shouldAnswerProtobuf() throws Exception {
+        // when
+        HttpResponse<byte[]> response = get("", "application/x-protobuf", null);
+
+        // then
+        assertThat(response.headers().firstValue("Content-Type")).hasValue("application/x-protobuf");
+        List<Map<Integer, Object>> decoded = decodeStudentList(response.body());
+        assertThat(decoded).hasSize(students.size());
+        Student first = students.get(0);
+        assertThat(decoded.get(0)).containsEntry(1, first.getId())
+                .containsEntry(2, first.getName())
+                .containsEntry(3, first.getEmail())
+                // MALE is the first value after GENDER_UNSPECIFIED
+                .containsEntry(4, 1L)
+                .containsEntry(5, 0L);
+    }
+
+    @Test
+    void shouldLeaveOutProtobufFieldsNotRequested() throws Exception {
+        // when
+        HttpResponse<byte[]> response = get("?fields=name", "application/x-protobuf", null);
+
+        // then
+        Map<Integer, Object> first = decodeStudentList(response.body()).get(0);
+        assertThat(first.keySet()).containsExactlyInAnyOrder(1, 2);
+    }
+
+    @Test
+    void shouldCompressLargeResponsesOnly() throws Exception {
+        // when
+        HttpResponse<byte[]> list = get("", "application/json", "gzip");
+        HttpResponse<byte[]> single = get("/" + students.get(0).getId(), "application/json", "gzip");
+
+        // then
+        // a strong ETag would have kept Tomcat from compressing the list
+        assertThat(list.headers().firstValue("ETag")).hasValueSatisfying(
+                eTag -> assertThat(eTag).startsWith("W/"));
+        assertThat(list.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        // below the 2KB threshold
+        assertThat(single.headers().firstValue("Content-Encoding")).isEmpty();
+    }
+
+    private HttpResponse<byte[]> get(String path, String accept, String acceptEncoding) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + port + "/api/v1/students" + path))
+                .header("Accept", accept);
+        if (acceptEncoding != null) {
+            request.header("Accept-Encoding", acceptEncoding);
+        }
+        HttpResponse<byte[]> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(response.statusCode()).isEqualTo(200);
+        return response;
+    }
+
+    /**
+     * The students of a StudentList, as the values of their fields by field number.
+     */
+    private static List<Map<Integer, Object>> decodeStudentList(byte[] message) throws Exception {
+        List<Map<Integer, Object>> students = new ArrayList<>();
+        CodedInputStream list = CodedInputStream.newInstance(message);
+        while (!list.isAtEnd()) {
+            assertThat(list.readTag()).isEqualTo((1 << 3) | 2);
+            CodedInputStream student = CodedInputStream.newInstance(list.readByteArray());
+            Map<Integer, Object> fields = new HashMap<>();
+            while (!student.isAtEnd()) {
+                int tag = student.readTag();
+                int field = tag >>> 3;
+                fields.put(field, field == 2 || field == 3 ? student.readString() : student.readInt64());
+            }
+            students.add(fields);
+        }
+        return students;
+    }
+}
@@ -1,12 +1,20 @@
 package com.example.demo.student;
 
+import com.example.demo.datasource.ReplicaReads;
 import com.example.demo.student.exception.BadRequestException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.validation.BindingResult;
 
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.mockito.Mockito.*;
 
@@ -18,12 +26,15 @@ public class StudentControllerTest {
     @Mock
     private BindingResult bindingResult;
 
+    private final StudentCollectionVersion studentCollectionVersion =
+            new StudentCollectionVersion(Duration.ofMinutes(1));
+
     private StudentController studentController;
 
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
-        studentController = new StudentController(studentService);
+        studentController = new StudentController(studentService, studentCollectionVersion);
     }
 
     @Test
@@ -76,4 +87,94 @@ public class StudentControllerTest {
         // Verify that the student service is not called
         verify(studentService, never()).updateStudent(eq(id), any(Student.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPatchStudentWithBindingErrors() {
+        // given
+        StudentPatch patch = new StudentPatch(" ", null, null);
+        long id = 6;
+
+        // when
+        when(bindingResult.hasErrors()).thenReturn(true);
+
+        // then
+        // Assert that a BadRequestException is thrown
+        try {
+            studentController.patchStudent(id, "\"1\"", patch, bindingResult);
+        } catch (BadRequestException e) {
+            int statusCode = e.getStatusCode();
+            // Perform assertions on the status code (Bad request)
+            assertThat(statusCode).isEqualTo(400);
+        }
+
+        // Verify that the student service is not called
+        verify(studentService, never()).patchStudent(eq(id), any(StudentPatch.class), any());
+    }
+
+    @Test
+    public void testGetAllStudentsNotModified() {
+        // given
+        // a client that already holds the current version of the collection
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/students");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, studentCollectionVersion.currentETag());
+
+        // when
+        ResponseEntity<List<?>> response = studentController.getAllStudents(50, "id", "asc", null, null, request);
+
+        // then
+        // Assert that 304 is answered without reading the students
+        assertThat(response.getStatusCodeValue()).isEqualTo(304);
+        verify(studentService, never()).getStudents(any());
+    }
+
+    @Test
+    public void testGetAllStudentsModifiedAfterChange() {
+        // given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/students");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, studentCollectionVersion.currentETag());
+        when(studentService.getStudents(any())).thenReturn(new StudentPage<>(List.of(), null));
+
+        // when
+        // a student was deleted since the client fetched the collection
+        studentCollectionVersion.onStudentChange(StudentChangeEvent.deleted(1L, "gone@mail.com", Gender.OTHER));
+        ResponseEntity<List<?>> response = studentController.getAllStudents(50, "id", "asc", null, null, request);
+
+        // then
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        assertThat(response.getHeaders().getETag()).isEqualTo(studentCollectionVersion.currentETag());
+    }
+
+    @Test
+    public void testGetAllStudentsFromReplicaWithoutETag() {
+        // given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/students");
+        when(studentService.getStudents(any())).thenAnswer(invocation -> {
+            // what ReadWriteRoutingDataSource does when it routes the read to a replica
+            ReplicaReads.routed();
+            return new StudentPage<>(List.of(), null);
+        });
+
+        // when
+        ResponseEntity<List<?>> response = studentController.getAllStudents(50, "id", "asc", null, null, request);
+
+        // then
+        // the replica may lag behind the version, the page must not be labelled with it
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        assertThat(response.getHeaders().getETag()).isNull();
+    }
+
+    @Test
+    public void testGetAllStudentsWithFields() {
+        // given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/students");
+        when(studentService.getStudentFields(any(), any())).thenReturn(new StudentPage<>(List.of(), null));
+
+        // when
+        studentController.getAllStudents(50, "id", "asc", null, "name", request);
+
+        // then
+        // only the name is selected, and the id that is always part of the response
+        verify(studentService).getStudentFields(any(), eq(EnumSet.of(StudentField.ID, StudentField.NAME)));
+        verify(studentService, never()).getStudents(any());
+    }
+}
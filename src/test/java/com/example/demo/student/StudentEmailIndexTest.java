@@ -0,0 +1,105 @@
+package com.example.demo.student;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class StudentEmailIndexTest {
+
+    @Mock
+    private StudentRepository studentRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StudentEmailIndex underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new StudentEmailIndex(studentRepository, transactionManager);
+    }
+
+    @Test
+    void everyEmailMayBeTakenUntilBuilt() {
+        assertThat(underTest.mightContain("anna@mail.com")).isTrue();
+    }
+
+    @Test
+    void canRuleOutEmailsAfterRebuild() {
+        // given
+        given(studentRepository.count()).willReturn(2L);
+        given(studentRepository.streamEmails())
+                .willReturn(Stream.of("anna@mail.com", "bob@mail.com"));
+
+        // when
+        underTest.rebuild();
+
+        // then
+        assertThat(underTest.mightContain("anna@mail.com")).isTrue();
+        assertThat(underTest.mightContain("bob@mail.com")).isTrue();
+        assertThat(underTest.mightContain("carl@mail.com")).isFalse();
+    }
+
+    @Test
+    void shouldAddEmailsOfChangedStudents() {
+        // given
+        given(studentRepository.count()).willReturn(0L);
+        given(studentRepository.streamEmails()).willReturn(Stream.empty());
+        underTest.rebuild();
+
+        // when
+        underTest.onStudentChange(StudentChangeEvent.created(
+                new Student(1L, "Anna", "anna@mail.com", Gender.FEMALE, 0L)));
+        StudentPatch patch = new StudentPatch();
+        patch.setEmail("bob@mail.com");
+        underTest.onStudentChange(StudentChangeEvent.patched(2L, patch));
+
+        // then
+        assertThat(underTest.mightContain("anna@mail.com")).isTrue();
+        assertThat(underTest.mightContain("bob@mail.com")).isTrue();
+    }
+
+    @Test
+    void shouldKeepEmailsAddedDuringRebuild() {
+        // given
+        // a student is created while the emails are being read
+        given(studentRepository.count()).willReturn(1L);
+        given(studentRepository.streamEmails()).willAnswer(invocation -> {
+            underTest.onStudentChange(StudentChangeEvent.created(
+                    new Student(2L, "Bob", "bob@mail.com", Gender.MALE, 0L)));
+            return Stream.of("anna@mail.com");
+        });
+
+        // when
+        underTest.rebuild();
+
+        // then
+        assertThat(underTest.mightContain("bob@mail.com")).isTrue();
+    }
+
+    @Test
+    void bloomFilterHasNoFalseNegativesAndFewFalsePositives() {
+        // given
+        EmailBloomFilter filter = new EmailBloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.add("student" + i + "@mail.com"));
+
+        // then
+        assertThat(IntStream.range(0, 10_000)
+                .allMatch(i -> filter.mightContain("student" + i + "@mail.com"))).isTrue();
+        long falsePositives = IntStream.range(0, 10_000)
+                .filter(i -> filter.mightContain("other" + i + "@mail.com"))
+                .count();
+        // 1% expected, leave some slack
+        assertThat(falsePositives).isLessThan(200);
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.demo.student;
+
+import com.example.demo.student.exception.TooManyEventStreamsException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StalledSseConnection;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StudentEventBroadcasterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // the tasks of the senders, run when the test decides
+    private final List<Runnable> pendingSends = new ArrayList<>();
+    private final ExecutorService writers = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        writers.shutdownNow();
+    }
+
+    private StudentEventBroadcaster broadcaster(int maxSubscribers, int queueCapacity, Executor senders) {
+        return new StudentEventBroadcaster(new ObjectMapper(), meterRegistry,
+                maxSubscribers, queueCapacity, Duration.ofMinutes(1), Duration.ofMillis(200), senders, writers);
+    }
+
+    @Test
+    void shouldPushCommittedChangesToEverySubscriber() {
+        // given
+        StudentEventBroadcaster underTest = broadcaster(10, 10, Runnable::run);
+        RecordingEmitter first = new RecordingEmitter();
+        RecordingEmitter second = new RecordingEmitter();
+        underTest.subscribe(first);
+        underTest.subscribe(second);
+
+        // when
+        underTest.onStudentChange(StudentChangeEvent.created(
+                new Student(1L, "Anna", "anna@mail.com", Gender.FEMALE, 0L)));
+        underTest.onStudentChange(StudentChangeEvent.deleted(2L, "gone@mail.com", Gender.OTHER));
+
+        // then
+        for (RecordingEmitter emitter : List.of(first, second)) {
+            assertThat(emitter.events).containsExactly(
+                    ":connected\n\n",
+                    "id:1\nevent:created\ndata:" +
+                            "{\"studentId\":1,\"student\":{\"id\":1,\"name\":\"Anna\",\"email\":\"anna@mail.com\",\"gender\":\"FEMALE\"}}" +
+                            "\n\n",
+                    "id:2\nevent:deleted\ndata:{\"studentId\":2}\n\n");
+        }
+    }
+
+    @Test
+    void shouldPushOnlyThePatchedFields() {
+        // given
+        StudentEventBroadcaster underTest = broadcaster(10, 10, Runnable::run);
+        RecordingEmitter emitter = new RecordingEmitter();
+        underTest.subscribe(emitter);
+
+        // when
+        underTest.onStudentChange(StudentChangeEvent.patched(1L, new StudentPatch("Ann", null, null)));
+
+        // then
+        assertThat(emitter.events).last()
+                .isEqualTo("id:1\nevent:updated\ndata:{\"studentId\":1,\"patch\":{\"name\":\"Ann\"}}\n\n");
+    }
+
+    @Test
+    void shouldReplaceTheBacklogOfASlowSubscriberWithAResync() {
+        // given
+        StudentEventBroadcaster underTest = broadcaster(10, 2, pendingSends::add);
+        RecordingEmitter emitter = new RecordingEmitter();
+        underTest.subscribe(emitter);
+
+        // when
+        // the connected comment and the first change fill the queue
+        for (long id = 1; id <= 3; id++) {
+            underTest.onStudentChange(StudentChangeEvent.deleted(id, "gone@mail.com", Gender.OTHER));
+        }
+        new ArrayList<>(pendingSends).forEach(Runnable::run);
+
+        // then
+        // the second change overflowed, the resync took the next id
+        assertThat(emitter.events).containsExactly(
+                "id:3\nevent:" + StudentEventBroadcaster.RESYNC + "\ndata:{}\n\n",
+                "id:4\nevent:deleted\ndata:{\"studentId\":3}\n\n");
+        assertThat(meterRegistry.get(StudentEventBroadcaster.METRIC + ".resyncs").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldRefuseSubscribersOverTheLimit() {
+        // given
+        StudentEventBroadcaster underTest = broadcaster(1, 10, Runnable::run);
+        underTest.subscribe(new RecordingEmitter());
+
+        // when
+        // then
+        assertThatThrownBy(() -> underTest.subscribe(new RecordingEmitter()))
+                .isInstanceOf(TooManyEventStreamsException.class);
+    }
+
+    @Test
+    void shouldDropASubscriberThatWentAway() {
+        // given
+        StudentEventBroadcaster underTest = broadcaster(10, 10, Runnable::run);
+        RecordingEmitter emitter = new RecordingEmitter();
+        underTest.subscribe(emitter);
+        emitter.gone = true;
+
+        // when
+        underTest.onStudentChange(StudentChangeEvent.deleted(1L, "gone@mail.com", Gender.OTHER));
+
+        // then
+        assertThat(underTest.subscriberCount()).isZero();
+        assertThat(meterRegistry.get(StudentEventBroadcaster.METRIC + ".subscribers").gauge().value())
+                .isZero();
+    }
+
+    @Test
+    void shouldDropASubscriberThatStoppedReadingWithoutHoldingTheSender() throws Exception {
+        // given
+        // a single sender, that a stalled client must not keep from the others
+        ExecutorService sender = Executors.newSingleThreadExecutor();
+        try {
+            StudentEventBroadcaster underTest = broadcaster(10, 10, sender);
+            SseEmitter stalledEmitter = new SseEmitter();
+            StalledSseConnection stalled = StalledSseConnection.attachTo(stalledEmitter);
+            SseEmitter readingEmitter = new SseEmitter();
+            StalledSseConnection reading = StalledSseConnection.attachTo(readingEmitter);
+            underTest.subscribe(stalledEmitter);
+            underTest.subscribe(readingEmitter);
+            awaitWrites(reading, 1);
+            stalled.stall();
+
+            // when
+            underTest.onStudentChange(StudentChangeEvent.deleted(1L, "gone@mail.com", Gender.OTHER));
+            awaitWrites(reading, 2);
+            underTest.onStudentChange(StudentChangeEvent.deleted(2L, "gone@mail.com", Gender.OTHER));
+
+            // then
+            // the sender moved on once the write to the stalled client timed out
+            awaitWrites(reading, 3);
+            assertThat(underTest.subscriberCount()).isEqualTo(1);
+            assertThat(meterRegistry.get(StudentEventBroadcaster.METRIC + ".stalls").counter().count())
+                    .isEqualTo(1);
+            // its blocked writer completes it once the write returns
+            assertThat(stalled.isCompleted()).isFalse();
+            stalled.release();
+            for (int i = 0; i < 100 && !stalled.isCompleted(); i++) {
+                Thread.sleep(20);
+            }
+            assertThat(stalled.isCompleted()).isTrue();
+        } finally {
+            sender.shutdownNow();
+        }
+    }
+
+    private static void awaitWrites(StalledSseConnection connection, int count) throws InterruptedException {
+        // each event is written as several parts, the last one ends with a blank line
+        for (int i = 0; i < 100 && blankLines(connection) < count; i++) {
+            Thread.sleep(20);
+        }
+        assertThat(blankLines(connection)).isEqualTo(count);
+    }
+
+    private static long blankLines(StalledSseConnection connection) {
+        return connection.getWritten().stream()
+                .filter(data -> data.toString().endsWith("\n\n"))
+                .count();
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<String> events = new ArrayList<>();
+        private volatile boolean gone;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (gone) {
+                throw new IOException("Broken pipe");
+            }
+            events.add(builder.build().stream()
+                    .map(data -> data.getData().toString())
+                    .collect(Collectors.joining()));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.student;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class StudentExportServiceTest {
+
+    @Mock
+    private StudentRepository studentRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private StudentExportService underTest;
+
+    private final Student johnny = new Student(1L, "Johnny", "johnny@mail.com", Gender.MALE, 0L);
+    private final Student jane = new Student(2L, "Doe, \"Jane\"", "jane@mail.com", Gender.FEMALE, 0L);
+
+    @BeforeEach
+    void setUp() {
+        underTest = new StudentExportService(studentRepository, entityManager, new ObjectMapper());
+    }
+
+    @Test
+    void canExportStudentsAsCsv() throws Exception {
+        // given
+        given(studentRepository.streamAll()).willReturn(Stream.of(johnny, jane));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        underTest.export(StudentExportFormat.CSV, out);
+
+        // then
+        // values containing commas or quotes are quoted
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "id,name,email,gender\n" +
+                "1,Johnny,johnny@mail.com,MALE\n" +
+                "2,\"Doe, \"\"Jane\"\"\",jane@mail.com,FEMALE\n");
+    }
+
+    @Test
+    void canExportStudentsAsNdjsonAndDetachThem() throws Exception {
+        // given
+        given(studentRepository.streamAll()).willReturn(Stream.of(johnny, jane));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        underTest.export(StudentExportFormat.NDJSON, out);
+
+        // then
+        // one JSON document per line
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(new ObjectMapper().readValue(lines[1], Student.class)).isEqualTo(jane);
+        // every exported row leaves the persistence context
+        verify(entityManager).detach(johnny);
+        verify(entityManager).detach(jane);
+    }
+}
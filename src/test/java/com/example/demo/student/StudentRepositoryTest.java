@@ -1,11 +1,22 @@
 package com.example.demo.student;
 
+import org.hibernate.Session;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
 
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @DataJpaTest
 class StudentRepositoryTest {
@@ -13,6 +24,9 @@ class StudentRepositoryTest {
     @Autowired
     private StudentRepository underTest;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     @AfterEach
     void tearDown() {
         underTest.deleteAll();
@@ -52,4 +66,225 @@ class StudentRepositoryTest {
         // then
         assertThat(expected).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldReturnKeysetPagesInSortOrder() {
+        // given
+        underTest.save(new Student("Carl", "carl@mail.com", Gender.MALE));
+        underTest.save(new Student("Anna", "anna@mail.com", Gender.FEMALE));
+        underTest.save(new Student("Bob", "bob@mail.com", Gender.MALE));
+
+        // when
+        // the first page contains one extra row that signals a next page
+        List<Student> firstPage = underTest.findPage(
+                StudentPageRequest.of("name", "asc", null, 2));
+        String cursor = StudentCursor.after(StudentSortKey.NAME, firstPage.get(1)).encode();
+        List<Student> secondPage = underTest.findPage(
+                StudentPageRequest.of("name", "asc", cursor, 2));
+
+        // then
+        assertThat(firstPage).extracting(Student::getName).containsExactly("Anna", "Bob", "Carl");
+        assertThat(secondPage).extracting(Student::getName).containsExactly("Carl");
+    }
+
+    @Test
+    void shouldReturnKeysetPagesInDescendingIdOrder() {
+        // given
+        Student first = underTest.save(new Student("Anna", "anna@mail.com", Gender.FEMALE));
+        Student second = underTest.save(new Student("Bob", "bob@mail.com", Gender.MALE));
+        String cursor = StudentCursor.after(StudentSortKey.ID, second).encode();
+
+        // when
+        List<Student> page = underTest.findPage(
+                StudentPageRequest.of("id", "desc", cursor, 10));
+
+        // then
+        assertThat(page).containsExactly(first);
+    }
+
+    @Test
+    void shouldStreamAllStudentsOrderedById() {
+        // given
+        Student first = underTest.save(new Student("Anna", "anna@mail.com", Gender.FEMALE));
+        Student second = underTest.save(new Student("Bob", "bob@mail.com", Gender.MALE));
+
+        // when
+        // @DataJpaTest runs every test in a transaction, which the stream requires
+        List<Student> streamed;
+        try (Stream<Student> students = underTest.streamAll()) {
+            streamed = students.collect(Collectors.toList());
+        }
+
+        // then
+        assertThat(streamed).containsExactly(first, second);
+    }
+
+    @Test
+    void shouldSelectOnlyTakenEmails() {
+        // given
+        underTest.save(new Student("Anna", "anna@mail.com", Gender.FEMALE));
+
+        // when
+        Set<String> taken = underTest.selectTakenEmails(List.of("anna@mail.com", "bob@mail.com"));
+
+        // then
+        assertThat(taken).containsExactly("anna@mail.com");
+    }
+
+    @Test
+    void shouldRejectTakenEmailWithUniqueViolation() {
+        // given
+        // StudentService.addStudent relies on the unique constraint instead of a prior check
+        underTest.saveAndFlush(new Student("Anna", "anna@mail.com", Gender.FEMALE));
+
+        // then
+        assertThatThrownBy(() -> underTest.saveAndFlush(
+                new Student("Other Anna", "anna@mail.com", Gender.FEMALE)))
+                .isInstanceOfSatisfying(DataIntegrityViolationException.class,
+                        e -> assertThat(StudentService.isUniqueViolation(e)).isTrue());
+        // forget the rejected student so that tearDown does not flush it again
+        entityManager.clear();
+    }
+
+    @Test
+    void shouldPatchOnlySuppliedFieldsWhenVersionMatches() {
+        // given
+        Student student = underTest.saveAndFlush(new Student("Anna", "anna@mail.com", Gender.FEMALE));
+        long version = student.getVersion();
+
+        // when
+        List<Object[]> stale = underTest.patch(student.getId(), new StudentPatch("Lost", null, null), version + 1);
+        List<Object[]> updated = underTest.patch(student.getId(), new StudentPatch("Hanna", null, null), version);
+        // the bulk update bypasses the persistence context, read the row again
+        entityManager.clear();
+
+        // then
+        assertThat(stale).isEmpty();
+        // H2 has no RETURNING, only the id is known
+        assertThat(updated).hasSize(1);
+        assertThat(updated.get(0)).containsExactly(student.getId(), null, null);
+        Student patched = underTest.findById(student.getId()).orElseThrow();
+        assertThat(patched.getName()).isEqualTo("Hanna");
+        assertThat(patched.getEmail()).isEqualTo("anna@mail.com");
+        assertThat(patched.getVersion()).isEqualTo(version + 1);
+    }
+
+    @Test
+    void shouldDeleteStudentsWithOneStatement() {
+        // given
+        Student anna = underTest.save(new Student("Anna", "anna@mail.com", Gender.FEMALE));
+        Student bob = underTest.save(new Student("Bob", "bob@mail.com", Gender.MALE));
+        Student carl = underTest.save(new Student("Carl", "carl@mail.com", Gender.MALE));
+        underTest.flush();
+
+        // when
+        List<Object[]> deletedOne = underTest.deleteStudents(List.of(anna.getId()));
+        List<Object[]> deletedMissing = underTest.deleteStudents(List.of(anna.getId()));
+        List<Object[]> deletedMany = underTest.deleteStudents(List.of(bob.getId(), carl.getId(), -1L));
+        entityManager.clear();
+
+        // then
+        assertThat(deletedOne).hasSize(1);
+        assertThat(deletedMissing).isEmpty();
+        assertThat(deletedMany).extracting(row -> row[0]).containsExactlyInAnyOrder(bob.getId(), carl.getId());
+        assertThat(underTest.count()).isZero();
+    }
+
+    @Test
+    void shouldReadTheClockOfTheDatabase() {
+        // when
+        long before = System.currentTimeMillis();
+        double databaseTime = underTest.findDatabaseTimeMillis();
+        long after = System.currentTimeMillis();
+
+        // then
+        // the same machine, within the resolution of CURRENT_TIMESTAMP
+        assertThat(databaseTime).isBetween(before - 1000.0, after + 1000.0);
+    }
+
+    @Test
+    void shouldSearchByNameEmailDomainAndGender() {
+        // given
+        Student anna = underTest.save(new Student("Anna Smith", "anna@school.org", Gender.FEMALE));
+        Student hannah = underTest.save(new Student("Hannah", "hannah@mail.com", Gender.FEMALE));
+        Student andy = underTest.save(new Student("andy", "andy@SCHOOL.org", Gender.MALE));
+        StudentPageRequest firstPage = StudentPageRequest.of("id", "asc", null, 10);
+
+        // when
+        // name prefix and substring, case-insensitively
+        List<Student> byPrefix = underTest.search(
+                StudentSearchCriteria.of("AN", "prefix", null, null), firstPage);
+        List<Student> bySubstring = underTest.search(
+                StudentSearchCriteria.of("ann", "contains", null, null), firstPage);
+        // email domain and gender together
+        List<Student> byDomainAndGender = underTest.search(
+                StudentSearchCriteria.of(null, "prefix", "@school.org", "female"), firstPage);
+
+        // then
+        assertThat(byPrefix).containsExactly(anna, andy);
+        assertThat(bySubstring).containsExactly(anna, hannah);
+        assertThat(byDomainAndGender).containsExactly(anna);
+    }
+
+    @Test
+    void shouldMatchLikeWildcardsLiterally() {
+        // given
+        underTest.save(new Student("1000 Anna", "anna@mail.com", Gender.FEMALE));
+        Student percent = underTest.save(new Student("100% Bob", "bob@mail.com", Gender.MALE));
+
+        // when
+        List<Student> students = underTest.search(
+                StudentSearchCriteria.of("00%", "contains", null, null),
+                StudentPageRequest.of("id", "asc", null, 10));
+
+        // then
+        assertThat(students).containsExactly(percent);
+    }
+
+    @Test
+    void shouldCountStudentsByGenderAndEmailDomain() {
+        // given
+        underTest.save(new Student("Anna", "anna@school.org", Gender.FEMALE));
+        underTest.save(new Student("Bob", "bob@SCHOOL.org", Gender.MALE));
+        underTest.save(new Student("Carl", "carl@mail.com", Gender.MALE));
+
+        // when
+        Map<Object, Object> byGender = underTest.countByGender().stream()
+                .collect(Collectors.toMap(row -> row[0], row -> row[1]));
+        Map<Object, Object> byEmailDomain = underTest.countByEmailDomain().stream()
+                .collect(Collectors.toMap(row -> row[0], row -> row[1]));
+
+        // then
+        assertThat(byGender).containsOnly(
+                Map.entry(Gender.FEMALE, 1L), Map.entry(Gender.MALE, 2L));
+        // grouped like StudentStatsService#emailDomain does
+        assertThat(byEmailDomain).containsOnly(
+                Map.entry(StudentStatsService.emailDomain("bob@SCHOOL.org"), 2L),
+                Map.entry("mail.com", 1L));
+    }
+
+    @Test
+    void shouldSelectOnlyRequestedFieldsWithoutManagingEntities() {
+        // given
+        underTest.save(new Student("Bob", "bob@mail.com", Gender.MALE));
+        Student anna = underTest.save(new Student("Anna", "anna@mail.com", Gender.FEMALE));
+        entityManager.flush();
+        entityManager.clear();
+
+        // when
+        List<Map<String, Object>> rows = underTest.findPageFields(
+                StudentPageRequest.of("name", "asc", null, 1),
+                EnumSet.of(StudentField.ID, StudentField.GENDER));
+
+        // then
+        // one extra row for the next page, with the name selected for the cursor
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(0)).containsOnly(
+                Map.entry("id", anna.getId()),
+                Map.entry("gender", Gender.FEMALE),
+                Map.entry("name", "Anna"));
+        // nothing was loaded into the persistence context
+        assertThat(entityManager.getEntityManager().unwrap(Session.class)
+                .getStatistics().getEntityCount()).isZero();
+    }
+}
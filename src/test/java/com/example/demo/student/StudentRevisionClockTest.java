@@ -0,0 +1,59 @@
+package com.example.demo.student;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StudentRevisionClockTest {
+
+    private final Instant now = Instant.parse("2024-03-01T10:00:00Z");
+
+    @Test
+    void shouldFollowTheWallClock() {
+        // given
+        StudentRevisionClock underTest = new StudentRevisionClock(Clock.fixed(now, ZoneOffset.UTC));
+
+        // when
+        long first = underTest.tick();
+        long second = underTest.tick();
+
+        // then
+        assertThat(first).isEqualTo(StudentRevisionClock.lowestAt(now));
+        assertThat(second).isEqualTo(first + 1);
+        assertThat(second).isLessThan(StudentRevisionClock.lowestAt(now.plusMillis(1)));
+    }
+
+    @Test
+    void shouldKeepIncreasingWhenTheClockGoesBack() {
+        // given
+        StudentRevisionClock underTest = new StudentRevisionClock(Clock.fixed(now, ZoneOffset.UTC));
+        underTest.witness(StudentRevisionClock.lowestAt(now.plusSeconds(60)));
+
+        // when
+        long revision = underTest.tick();
+
+        // then
+        assertThat(revision).isEqualTo(StudentRevisionClock.lowestAt(now.plusSeconds(60)) + 1);
+    }
+
+    @Test
+    void shouldFollowTheWallClockShiftedByItsOffsetToTheDatabase() {
+        // given
+        StudentRevisionClock.AlignedClock aligned =
+                new StudentRevisionClock.AlignedClock(Clock.fixed(now, ZoneOffset.UTC));
+        StudentRevisionClock underTest = new StudentRevisionClock(aligned);
+
+        // when
+        // this instance runs 20 seconds behind the database
+        aligned.offset = Duration.ofSeconds(20);
+        long revision = underTest.tick();
+
+        // then
+        assertThat(revision).isEqualTo(StudentRevisionClock.lowestAt(now.plusSeconds(20)));
+    }
+}
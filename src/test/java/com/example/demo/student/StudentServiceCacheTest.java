@@ -0,0 +1,101 @@
+package com.example.demo.student;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.validation.Validator;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unlike StudentServiceTest, runs StudentService in a Spring context
+ * so that the caching annotations are applied.
+ */
+@SpringJUnitConfig({StudentService.class, StudentCacheConfig.class})
+@TestPropertySource(properties = "student.cache.spec=maximumSize=100,recordStats")
+class StudentServiceCacheTest {
+
+    @MockBean
+    private StudentRepository studentRepository;
+
+    @MockBean
+    private Validator validator;
+
+    @MockBean
+    private StudentEmailIndex studentEmailIndex;
+
+    @MockBean
+    private StudentTombstoneRepository studentTombstoneRepository;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private StudentService underTest;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private final Student student = new Student(1L, "Johnny", "johnny@mail.com", Gender.MALE, 0L);
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache(StudentCacheConfig.STUDENT_CACHE).clear();
+        given(studentRepository.findById(1L)).willReturn(Optional.of(student));
+    }
+
+    @Test
+    void shouldReadStudentFromCacheAfterFirstLookup() {
+        // when
+        underTest.getStudent(1L);
+        Student cached = underTest.getStudent(1L);
+
+        // then
+        // only the first lookup reaches the repository
+        assertThat(cached).isEqualTo(student);
+        verify(studentRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void shouldEvictStudentWhenDeleted() {
+        // given
+        given(studentRepository.deleteStudents(List.of(1L)))
+                .willReturn(List.<Object[]>of(new Object[]{1L, "anna@mail.com", Gender.FEMALE}));
+        underTest.getStudent(1L);
+
+        // when
+        underTest.deleteStudent(1L);
+        underTest.getStudent(1L);
+
+        // then
+        // the lookup after the delete goes to the repository again
+        verify(studentRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void shouldEvictStudentWhenPatched() {
+        // given
+        StudentPatch patch = new StudentPatch("Leo", null, null);
+        given(studentRepository.patch(1L, patch, null))
+                .willReturn(List.<Object[]>of(new Object[]{1L, null, null}));
+        underTest.getStudent(1L);
+
+        // when
+        underTest.patchStudent(1L, patch, null);
+        underTest.getStudent(1L);
+
+        // then
+        verify(studentRepository, times(2)).findById(1L);
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.demo.student;
 
 import com.example.demo.student.exception.BadRequestException;
+import com.example.demo.student.exception.PreconditionFailedException;
+import com.example.demo.student.exception.SearchTimeoutException;
 import com.example.demo.student.exception.StudentNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,14 +11,34 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.BDDMockito;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class) // will manage the mock actions like: initialize mock and closing mock resource
@@ -34,23 +56,107 @@ class StudentServiceTest {
     @Mock
     private StudentRepository studentRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private StudentEmailIndex studentEmailIndex;
+
+    @Mock
+    private StudentTombstoneRepository studentTombstoneRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
     private StudentService underTest;
 
     // Will run before each test
     @BeforeEach
     void setUp(){
-        underTest = new StudentService(studentRepository);
+        underTest = new StudentService(studentRepository, validator, eventPublisher, studentEmailIndex,
+                studentTombstoneRepository, transactionManager);
     }
 
     @Test
-    void canGetAllStudents() {
+    void canGetStudentsPage() {
+        // given
+        StudentPageRequest pageRequest = StudentPageRequest.of("id", "asc", null, 2);
+
         // when
         // the service method is called
-        underTest.getAllStudents();
+        StudentPage<Student> page = underTest.getStudents(pageRequest);
+
+        // then
+        // verify if the repository was invoked using the keyset findPage() method
+        // and that an empty result has no next page
+        verify(studentRepository).findPage(pageRequest);
+        assertThat(page.hasNext()).isFalse();
+    }
+
+    @Test
+    void shouldReturnNextCursorWhenMoreStudentsExist() {
+        // given
+        StudentPageRequest pageRequest = StudentPageRequest.of("name", "asc", null, 2);
+        Student anna = new Student(1L, "Anna", "anna@mail.com", Gender.FEMALE, 0L);
+        Student bob = new Student(2L, "Bob", "bob@mail.com", Gender.MALE, 0L);
+        Student carl = new Student(3L, "Carl", "carl@mail.com", Gender.MALE, 0L);
+        // the repository returns one row more than the page size when a next page exists
+        given(studentRepository.findPage(pageRequest))
+                .willReturn(List.of(anna, bob, carl));
+
+        // when
+        StudentPage<Student> page = underTest.getStudents(pageRequest);
 
         // then
-        // verify if the repository was invoked using the findAll() method.
-        verify(studentRepository).findAll();
+        // the extra row is dropped and the cursor points after the last returned student
+        assertThat(page.getContent()).isEqualTo(List.of(anna, bob));
+        StudentCursor cursor = StudentCursor.decode(page.getNextCursor(), StudentSortKey.NAME);
+        assertThat(cursor.getLastId()).isEqualTo(2L);
+        assertThat(cursor.getLastValue()).isEqualTo("Bob");
+    }
+
+    @Test
+    void shouldReturnOnlyRequestedFieldsWithCursor() {
+        // given
+        StudentPageRequest pageRequest = StudentPageRequest.of("email", "asc", null, 1);
+        Set<StudentField> fields = EnumSet.of(StudentField.ID, StudentField.NAME);
+        // the repository also selects the sort key, for the cursor
+        given(studentRepository.findPageFields(pageRequest, fields)).willReturn(List.of(
+                new HashMap<>(Map.of("id", 1L, "name", "Anna", "email", "anna@mail.com")),
+                new HashMap<>(Map.of("id", 2L, "name", "Bob", "email", "bob@mail.com"))));
+
+        // when
+        StudentPage<Map<String, Object>> page = underTest.getStudentFields(pageRequest, fields);
+
+        // then
+        assertThat(page.getContent()).containsExactly(Map.of("id", 1L, "name", "Anna"));
+        StudentCursor cursor = StudentCursor.decode(page.getNextCursor(), StudentSortKey.EMAIL);
+        assertThat(cursor.getLastId()).isEqualTo(1L);
+        assertThat(cursor.getLastValue()).isEqualTo("anna@mail.com");
+    }
+
+    @Test
+    void shouldReportSearchTimeout() {
+        // given
+        StudentSearchCriteria criteria = StudentSearchCriteria.of("ann", "contains", null, null);
+        StudentPageRequest pageRequest = StudentPageRequest.of("id", "asc", null, 2);
+        given(studentRepository.search(criteria, pageRequest))
+                .willThrow(new QueryTimeoutException("canceling statement due to statement timeout"));
+
+        // then
+        assertThatThrownBy(() -> underTest.searchStudents(criteria, pageRequest))
+                .isInstanceOf(SearchTimeoutException.class);
+    }
+
+    @Test
+    void shouldRejectSearchWithoutFilter() {
+        assertThatThrownBy(() -> StudentSearchCriteria.of(" ", "prefix", null, null))
+                .isInstanceOf(BadRequestException.class);
+        // too short to use an index
+        assertThatThrownBy(() -> StudentSearchCriteria.of("an", "contains", null, null))
+                .isInstanceOf(BadRequestException.class);
     }
 
     @Test
@@ -70,15 +176,24 @@ class StudentServiceTest {
         ArgumentCaptor<Student> studentArgumentCaptor =
                 ArgumentCaptor.forClass(Student.class);
 
-        // verify if the repository was invoked using the save() method
+        // verify if the repository was invoked using the saveAndFlush() method
         // and capture the value of the transmitted Student object
         verify(studentRepository)
-                .save(studentArgumentCaptor.capture());
+                .saveAndFlush(studentArgumentCaptor.capture());
 
         Student captureStudent = studentArgumentCaptor.getValue();
 
         // check if studentRepository was invoked with the same object that was passed in StudentService underTest
         assertThat(captureStudent).isEqualTo(student);
+        // the email is not checked with a separate query
+        verify(studentRepository, never()).selectExistsEmail(any());
+
+        // the creation is announced to the listeners
+        ArgumentCaptor<StudentChangeEvent> eventArgumentCaptor =
+                ArgumentCaptor.forClass(StudentChangeEvent.class);
+        verify(eventPublisher).publishEvent(eventArgumentCaptor.capture());
+        assertThat(eventArgumentCaptor.getValue().getType()).isEqualTo(StudentChangeEvent.Type.CREATED);
+        assertThat(eventArgumentCaptor.getValue().getStudent()).isEqualTo(student);
     }
 
     @Test
@@ -89,46 +204,227 @@ class StudentServiceTest {
                 "johnny@mail.com",
                 Gender.MALE
         );
-        // set mock studentRepository to return true from calls on selectExistsEmail method
-        given(studentRepository.selectExistsEmail(student.getEmail()))
-                .willReturn(true);
+        // set mock studentRepository to fail like the unique email constraint does
+        given(studentRepository.saveAndFlush(student))
+                .willThrow(new DataIntegrityViolationException("duplicate key",
+                        new SQLException("duplicate key value violates unique constraint", "23505")));
         // then
         assertThatThrownBy(() -> underTest.addStudent(student))
                 .isInstanceOf(BadRequestException.class)
                 .hasMessageContaining("Email " + student.getEmail() + " is taken");
+    }
 
-        // to ensure that nothing will be saved by the mock after throwing an error
-        verify(studentRepository, never()).save(any());
+    @Test
+    void shouldRethrowOtherIntegrityViolations() {
+        // given
+        Student student = new Student(
+                "Johnny",
+                null,
+                Gender.MALE
+        );
+        // set mock studentRepository to fail like a not null constraint does
+        DataIntegrityViolationException notNullViolation = new DataIntegrityViolationException("null value",
+                new SQLException("null value in column \"email\"", "23502"));
+        given(studentRepository.saveAndFlush(student))
+                .willThrow(notNullViolation);
+        // then
+        assertThatThrownBy(() -> underTest.addStudent(student))
+                .isSameAs(notNullViolation);
+    }
+
+    @Test
+    void canAddStudentsInBatch() {
+        // given
+        List<Student> students = List.of(
+                new Student("Anna", "anna@mail.com", Gender.FEMALE),
+                new Student("", "blank@mail.com", Gender.MALE),
+                new Student("Bob", "bob@mail.com", Gender.MALE),
+                new Student("Anna again", "anna@mail.com", Gender.FEMALE)
+        );
+        // the index cannot rule out any email
+        given(studentEmailIndex.mightContain(anyString())).willReturn(true);
+        // set mock studentRepository to report bob's email as already taken
+        given(studentRepository.selectTakenEmails(List.of("anna@mail.com", "bob@mail.com")))
+                .willReturn(Set.of("bob@mail.com"));
+
+        // when
+        List<StudentBatchResult> results = underTest.addStudents(students);
+
+        // then
+        // one result per student, in request order
+        assertThat(results).extracting(StudentBatchResult::getStatus).containsExactly(
+                StudentBatchResult.Status.CREATED,
+                StudentBatchResult.Status.INVALID,
+                StudentBatchResult.Status.DUPLICATE,
+                StudentBatchResult.Status.DUPLICATE);
+        assertThat(results.get(2).getMessage()).isEqualTo("Email bob@mail.com is taken");
+
+        // only the valid and unique student is saved
+        verify(studentRepository).saveAll(List.of(students.get(0)));
+    }
+
+    @Test
+    void shouldOnlyLookUpEmailsTheIndexCannotRuleOut() {
+        // given
+        List<Student> students = List.of(
+                new Student("Anna", "anna@mail.com", Gender.FEMALE),
+                new Student("Bob", "bob@mail.com", Gender.MALE)
+        );
+        given(studentEmailIndex.mightContain("anna@mail.com")).willReturn(false);
+        given(studentEmailIndex.mightContain("bob@mail.com")).willReturn(true);
+        given(studentRepository.selectTakenEmails(List.of("bob@mail.com")))
+                .willReturn(Set.of());
+
+        // when
+        List<StudentBatchResult> results = underTest.addStudents(students);
+
+        // then
+        assertThat(results).extracting(StudentBatchResult::getStatus).containsOnly(
+                StudentBatchResult.Status.CREATED);
+        verify(studentRepository).saveAll(students);
+    }
+
+    @Test
+    void shouldNotLookUpEmailsWhenIndexRulesAllOut() {
+        // given
+        List<Student> students = List.of(new Student("Anna", "anna@mail.com", Gender.FEMALE));
+        given(studentEmailIndex.mightContain(anyString())).willReturn(false);
+
+        // when
+        underTest.addStudents(students);
+
+        // then
+        verify(studentRepository, never()).selectTakenEmails(any());
+        verify(studentRepository).saveAll(students);
+    }
+
+    @Test
+    void shouldReportEmailsTakenBehindTheIndexAsDuplicates() {
+        // given
+        List<Student> students = List.of(
+                new Student("Anna", "anna@mail.com", Gender.FEMALE),
+                new Student("Bob", "bob@mail.com", Gender.MALE)
+        );
+        // bob registered on another instance, this index does not know him
+        given(studentEmailIndex.mightContain(anyString())).willReturn(false);
+        willThrow(new DataIntegrityViolationException("duplicate key",
+                new SQLException("duplicate key value violates unique constraint", "23505")))
+                .willDoNothing()
+                .given(studentRepository).flush();
+        given(studentRepository.selectTakenEmails(List.of("anna@mail.com", "bob@mail.com")))
+                .willReturn(Set.of("bob@mail.com"));
+
+        // when
+        List<StudentBatchResult> results = underTest.addStudents(students);
+
+        // then
+        // the retry looked every email up and left bob out
+        assertThat(results).extracting(StudentBatchResult::getStatus).containsExactly(
+                StudentBatchResult.Status.CREATED,
+                StudentBatchResult.Status.DUPLICATE);
+        verify(studentRepository).saveAll(List.of(students.get(0)));
+        verify(eventPublisher, times(1)).publishEvent(any(StudentChangeEvent.class));
+    }
+
+    @Test
+    void shouldReportNullStudentOfBatchAsInvalid() {
+        // given
+        List<Student> students = Arrays.asList(
+                new Student("Anna", "anna@mail.com", Gender.FEMALE),
+                null
+        );
+        given(studentEmailIndex.mightContain(anyString())).willReturn(false);
+
+        // when
+        List<StudentBatchResult> results = underTest.addStudents(students);
+
+        // then
+        assertThat(results).extracting(StudentBatchResult::getStatus).containsExactly(
+                StudentBatchResult.Status.CREATED,
+                StudentBatchResult.Status.INVALID);
+        assertThat(results.get(1).getMessage()).isEqualTo("Student must not be null");
+        verify(studentRepository).saveAll(List.of(students.get(0)));
+    }
+
+    @Test
+    void shouldThrowWhenBatchIsTooLarge() {
+        // given
+        List<Student> students = Collections.nCopies(
+                StudentService.MAX_BATCH_SIZE + 1,
+                new Student("Johnny", "johnny@mail.com", Gender.MALE));
+
+        // then
+        assertThatThrownBy(() -> underTest.addStudents(students))
+                .isInstanceOf(BadRequestException.class);
+        verify(studentRepository, never()).saveAll(any());
     }
 
     @Test
     void canDeleteStudent() {
         // given
         long id = 2;
-        // set mock studentRepository to return true from calls on existsById method
-        given(studentRepository.existsById(id))
-                .willReturn(true);
+        // set mock studentRepository to delete the student and return what it was
+        given(studentRepository.deleteStudents(List.of(id)))
+                .willReturn(List.<Object[]>of(new Object[]{id, "leo@maileo.com", Gender.MALE}));
         // when
         underTest.deleteStudent(id);
 
         // then
-        // verify if the studentRepository was invoked using the deleteById() method.
-        verify(studentRepository).deleteById(id);
+        // a single DELETE, the student is not read or locked first
+        verify(studentRepository, never()).findById(any());
+        verify(studentTombstoneRepository).save(any(StudentTombstone.class));
+        // the listeners learn what the deleted student was
+        verify(eventPublisher).publishEvent(argThat((StudentChangeEvent event) ->
+                event.getPreviousEmail().equals("leo@maileo.com")
+                        && event.getPreviousGender() == Gender.MALE));
     }
 
     @Test
     void shouldThrowWhenDeleteStudentNotFound() {
         // given
         long id = 3;
-        given(studentRepository.existsById(id))
-                .willReturn(false);
+        // set mock studentRepository to delete no student
+        given(studentRepository.deleteStudents(List.of(id)))
+                .willReturn(List.of());
         // then
         assertThatThrownBy(() -> underTest.deleteStudent(id))
                 .isInstanceOf(StudentNotFoundException.class)
                 .hasMessageContaining("Student with id " + id + " does not exist");
 
-        // to ensure that nothing will be deleted by the mock after throwing an error
-        verify(studentRepository, never()).deleteById(any());
+        // nothing changed, so nothing is announced
+        verify(studentTombstoneRepository, never()).save(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void canDeleteStudentsInBulk() {
+        // given
+        Set<Long> ids = Set.of(1L, 2L, 3L);
+        given(studentRepository.deleteStudents(ids))
+                .willReturn(List.<Object[]>of(
+                        new Object[]{1L, "anna@mail.com", Gender.FEMALE},
+                        new Object[]{2L, "bob@mail.com", Gender.MALE}));
+
+        // when
+        int deleted = underTest.deleteStudents(ids);
+
+        // then
+        assertThat(deleted).isEqualTo(2);
+        // only the students that existed get a tombstone and an event
+        verify(studentTombstoneRepository).saveAll(argThat(tombstones ->
+                StreamSupport.stream(tombstones.spliterator(), false)
+                        .map(StudentTombstone::getStudentId)
+                        .collect(Collectors.toList())
+                        .equals(List.of(1L, 2L))));
+        verify(eventPublisher, times(2)).publishEvent(any(StudentChangeEvent.class));
+    }
+
+    @Test
+    void shouldThrowWhenNoIdToDelete() {
+        // then
+        assertThatThrownBy(() -> underTest.deleteStudents(Set.of()))
+                .isInstanceOf(BadRequestException.class);
+        verify(studentRepository, never()).deleteStudents(any());
     }
 
     @Test
@@ -164,6 +460,79 @@ class StudentServiceTest {
         assertThat(captureStudent).isEqualTo(newStudentData);
     }
 
+    @Test
+    void canPatchStudentWithExpectedVersion() {
+        // given
+        long id = 6;
+        StudentPatch patch = new StudentPatch("Leo", null, null);
+        given(studentRepository.patch(id, patch, 3L))
+                .willReturn(List.<Object[]>of(new Object[]{id, null, null}));
+
+        // when
+        Long newVersion = underTest.patchStudent(id, patch, 3L);
+
+        // then
+        // the patch is a single UPDATE, the student is not loaded first
+        assertThat(newVersion).isEqualTo(4L);
+        verify(studentRepository, never()).findById(any());
+    }
+
+    @Test
+    void shouldThrowWhenPatchedStudentChangedConcurrently() {
+        // given
+        long id = 7;
+        StudentPatch patch = new StudentPatch("Leo", null, null);
+        given(studentRepository.patch(id, patch, 3L))
+                .willReturn(List.of());
+        given(studentRepository.existsById(id))
+                .willReturn(true);
+
+        // then
+        assertThatThrownBy(() -> underTest.patchStudent(id, patch, 3L))
+                .isInstanceOf(PreconditionFailedException.class);
+    }
+
+    @Test
+    void shouldThrowWhenPatchedStudentNotFound() {
+        // given
+        long id = 8;
+        StudentPatch patch = new StudentPatch("Leo", null, null);
+        given(studentRepository.patch(id, patch, null))
+                .willReturn(List.of());
+        given(studentRepository.existsById(id))
+                .willReturn(false);
+
+        // then
+        assertThatThrownBy(() -> underTest.patchStudent(id, patch, null))
+                .isInstanceOf(StudentNotFoundException.class)
+                .hasMessageContaining("Student with id " + id + " does not exist");
+    }
+
+    @Test
+    void shouldTellWhatAPatchOfTheGenderReplaces() {
+        // given
+        long id = 10;
+        StudentPatch patch = new StudentPatch(null, null, Gender.OTHER);
+        // set mock studentRepository to return the row as it was before the UPDATE
+        given(studentRepository.patch(id, patch, null))
+                .willReturn(List.<Object[]>of(new Object[]{id, "leo@maileo.com", Gender.MALE}));
+
+        // when
+        underTest.patchStudent(id, patch, null);
+
+        // then
+        verify(eventPublisher).publishEvent(argThat((StudentChangeEvent event) ->
+                event.getGender() == Gender.OTHER && event.getPreviousGender() == Gender.MALE));
+    }
+
+    @Test
+    void shouldThrowWhenPatchIsEmpty() {
+        // then
+        assertThatThrownBy(() -> underTest.patchStudent(9L, new StudentPatch(), null))
+                .isInstanceOf(BadRequestException.class);
+        verify(studentRepository, never()).patch(any(), any(), any());
+    }
+
     @Test
     void shouldThrowWhenUpdateStudentNotFound() {
         // given
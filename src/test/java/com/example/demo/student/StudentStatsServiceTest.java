@@ -0,0 +1,137 @@
+package com.example.demo.student;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class StudentStatsServiceTest {
+
+    @Mock
+    private StudentRepository studentRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StudentStatsService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new StudentStatsService(studentRepository, transactionManager, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void shouldCountCreatedAndUpdatedStudentsWithoutQueries() {
+        // given
+        given(studentRepository.countByGender()).willReturn(List.of());
+        given(studentRepository.countByEmailDomain()).willReturn(List.of());
+        underTest.reconcile();
+        Student anna = new Student(1L, "Anna", "anna@School.org", Gender.FEMALE, 0L);
+        Student bob = new Student(2L, "Bob", "bob@mail.com", Gender.MALE, 0L);
+
+        // when
+        underTest.onStudentChange(StudentChangeEvent.created(anna));
+        underTest.onStudentChange(StudentChangeEvent.created(bob));
+        // bob moves to anna's school
+        underTest.onStudentChange(StudentChangeEvent.updated(2L, bob,
+                new Student(2L, "Bob", "bob@school.org", Gender.OTHER, 1L)));
+
+        // then
+        StudentStats stats = underTest.getStats(StudentStatsService.DEFAULT_DOMAINS);
+        assertThat(stats.getTotal()).isEqualTo(2);
+        assertThat(stats.getByGender())
+                .containsEntry(Gender.FEMALE, 1L)
+                .containsEntry(Gender.MALE, 0L)
+                .containsEntry(Gender.OTHER, 1L);
+        // domains are case-insensitive, those left empty disappear
+        assertThat(stats.getByEmailDomain()).containsExactly(Map.entry("school.org", 2L));
+        assertThat(stats.isStale()).isFalse();
+    }
+
+    @Test
+    void shouldCountDeletedAndPatchedStudentsWithoutQueries() {
+        // given
+        given(studentRepository.countByGender()).willReturn(List.<Object[]>of(
+                new Object[]{Gender.FEMALE, 2L}, new Object[]{Gender.MALE, 1L}));
+        given(studentRepository.countByEmailDomain()).willReturn(List.<Object[]>of(
+                new Object[]{"mail.com", 1L}, new Object[]{"school.org", 2L}));
+        underTest.reconcile();
+        StudentPatch patch = new StudentPatch();
+        patch.setEmail("anna@mail.com");
+
+        // when
+        underTest.onStudentChange(StudentChangeEvent.deleted(3L, "bob@mail.com", Gender.MALE));
+        // anna leaves the school
+        underTest.onStudentChange(StudentChangeEvent.patched(1L, patch, "anna@school.org", Gender.FEMALE));
+        underTest.reconcileIfNeeded();
+
+        // then
+        StudentStats stats = underTest.getStats(StudentStatsService.DEFAULT_DOMAINS);
+        assertThat(stats.getTotal()).isEqualTo(2);
+        assertThat(stats.getByGender())
+                .containsEntry(Gender.FEMALE, 2L)
+                .containsEntry(Gender.MALE, 0L);
+        assertThat(stats.getByEmailDomain())
+                .containsExactly(Map.entry("mail.com", 1L), Map.entry("school.org", 1L));
+        assertThat(stats.isStale()).isFalse();
+        // only the initial reconciliation queried the table
+        verify(studentRepository).countByGender();
+    }
+
+    @Test
+    void shouldReconcileAfterDeletionOfUnknownStudent() {
+        // given
+        given(studentRepository.countByGender()).willReturn(List.<Object[]>of(
+                new Object[]{Gender.FEMALE, 2L}, new Object[]{Gender.MALE, 1L}));
+        given(studentRepository.countByEmailDomain()).willReturn(List.<Object[]>of(
+                new Object[]{"mail.com", 1L}, new Object[]{"school.org", 2L}));
+        underTest.reconcile();
+
+        // when
+        // the DELETE did not return the student, off PostgreSQL
+        underTest.onStudentChange(StudentChangeEvent.deleted(3L, null, null));
+
+        // then
+        assertThat(underTest.getStats(1).isStale()).isTrue();
+        given(studentRepository.countByGender()).willReturn(List.<Object[]>of(
+                new Object[]{Gender.FEMALE, 2L}));
+        given(studentRepository.countByEmailDomain()).willReturn(List.<Object[]>of(
+                new Object[]{"school.org", 2L}));
+        underTest.reconcileIfNeeded();
+        StudentStats stats = underTest.getStats(1);
+        assertThat(stats.getTotal()).isEqualTo(2);
+        assertThat(stats.getByGender()).containsEntry(Gender.MALE, 0L);
+        assertThat(stats.getEmailDomainCount()).isEqualTo(1);
+        assertThat(stats.isStale()).isFalse();
+    }
+
+    @Test
+    void shouldNotReconcileWhenFreshAndExact() {
+        // given
+        given(studentRepository.countByGender()).willReturn(List.of());
+        given(studentRepository.countByEmailDomain()).willReturn(List.of());
+        underTest.reconcile();
+        // a patch of the name does not change any count
+        StudentPatch patch = new StudentPatch();
+        patch.setName("Renamed");
+        underTest.onStudentChange(StudentChangeEvent.patched(1L, patch));
+
+        // when
+        underTest.reconcileIfNeeded();
+
+        // then
+        verify(studentRepository).countByGender();
+        assertThat(underTest.getStats(0).isStale()).isFalse();
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.demo.student;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sync;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        // every change is settled right away
+        "student.sync.settle-time=0s"
+})
+@AutoConfigureMockMvc
+class StudentSyncControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StudentService studentService;
+
+    @Autowired
+    private StudentSyncService studentSyncService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private StudentTombstoneRepository studentTombstoneRepository;
+
+    @AfterEach
+    void tearDown() {
+        studentRepository.deleteAll();
+        studentTombstoneRepository.deleteAll();
+    }
+
+    @Test
+    void shouldReturnOnlyTheChangesSinceTheToken() throws Exception {
+        // given
+        Student anna = new Student("Anna", "anna@mail.com", Gender.FEMALE);
+        Student bob = new Student("Bob", "bob@mail.com", Gender.MALE);
+        studentService.addStudent(anna);
+        studentService.addStudent(bob);
+        JsonNode fullSync = changes(null);
+        assertThat(names(fullSync)).containsExactly("Anna", "Bob");
+        assertThat(fullSync.get("deleted")).isEmpty();
+
+        // when
+        studentService.updateStudent(anna.getId(), new Student("Anna Maria", "anna@mail.com", Gender.FEMALE));
+        studentService.deleteStudent(bob.getId());
+        studentService.addStudent(new Student("Carl", "carl@mail.com", Gender.MALE));
+        JsonNode changes = changes(fullSync.get("next").asText());
+
+        // then
+        assertThat(names(changes)).containsExactly("Anna Maria", "Carl");
+        assertThat(changes.get("deleted").get(0).asLong()).isEqualTo(bob.getId());
+        assertThat(changes.get("hasMore").asBoolean()).isFalse();
+        JsonNode none = changes(changes.get("next").asText());
+        assertThat(none.get("upserted")).isEmpty();
+        assertThat(none.get("deleted")).isEmpty();
+    }
+
+    @Test
+    void shouldPageThroughTheChanges() throws Exception {
+        // given
+        for (String name : List.of("Anna", "Bob", "Carl")) {
+            studentService.addStudent(new Student(name, name.toLowerCase() + "@mail.com", Gender.OTHER));
+        }
+
+        // when
+        List<String> names = new ArrayList<>();
+        JsonNode page = changes(null, 2);
+        names.addAll(names(page));
+        assertThat(page.get("hasMore").asBoolean()).isTrue();
+        page = changes(page.get("next").asText(), 2);
+        names.addAll(names(page));
+
+        // then
+        assertThat(page.get("hasMore").asBoolean()).isFalse();
+        assertThat(names).containsExactly("Anna", "Bob", "Carl");
+    }
+
+    @Test
+    void shouldAnswerGoneToATokenOlderThanTheTombstones() throws Exception {
+        // given
+        long longAgo = StudentRevisionClock.lowestAt(Instant.now().minus(Duration.ofDays(31)));
+        String token = new StudentChangeToken(longAgo, 1, longAgo).encode();
+
+        // then
+        mockMvc.perform(get("/api/v1/students/changes").param("since", token))
+                .andExpect(status().isGone())
+                .andExpect(jsonPath("$.detail").value("The change token is too old, sync again without one"));
+    }
+
+    @Test
+    void shouldRejectAnInvalidToken() throws Exception {
+        mockMvc.perform(get("/api/v1/students/changes").param("since", "not-a-token"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldCompactTheOldTombstones() {
+        // given
+        Instant longAgo = Instant.now().minus(Duration.ofDays(31));
+        studentTombstoneRepository.save(new StudentTombstone(1L, StudentRevisionClock.lowestAt(longAgo), longAgo));
+        studentTombstoneRepository.save(new StudentTombstone(2L, StudentRevisionClock.next(), Instant.now()));
+
+        // when
+        int removed = studentSyncService.compact();
+
+        // then
+        assertThat(removed).isEqualTo(1);
+        assertThat(studentTombstoneRepository.findAll())
+                .extracting(StudentTombstone::getStudentId)
+                .containsExactly(2L);
+    }
+
+    private JsonNode changes(String since) throws Exception {
+        return changes(since, StudentSyncService.DEFAULT_SIZE);
+    }
+
+    private JsonNode changes(String since, int size) throws Exception {
+        String json = mockMvc.perform(get("/api/v1/students/changes")
+                        .param("since", since == null ? "" : since)
+                        .param("size", String.valueOf(size)))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        return objectMapper.readTree(json);
+    }
+
+    private static List<String> names(JsonNode changes) {
+        List<String> names = new ArrayList<>();
+        changes.get("upserted").forEach(student -> names.add(student.get("name").asText()));
+        return names;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.demo.student.importer;
+
+import com.example.demo.student.Gender;
+import com.example.demo.student.Student;
+import com.example.demo.student.StudentEmailIndex;
+import com.example.demo.student.StudentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.validation.Validation;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class StudentImportServiceTest {
+
+    @Mock
+    private StudentRepository studentRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private StudentEmailIndex studentEmailIndex;
+
+    // collects the loaded chunks instead of writing to a database
+    private final List<Student> loaded = new ArrayList<>();
+
+    private StudentImportService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new StudentImportService(
+                studentRepository,
+                loaded::addAll,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                eventPublisher,
+                studentEmailIndex);
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.shutdown();
+    }
+
+    @Test
+    void canImportValidRowsAndReportRejectedOnes() throws Exception {
+        // given
+        // columns in a different order than the entity, a quoted name, and four bad rows
+        String csv = "email,name,gender\n" +
+                "anna@mail.com,\"Anna, Jr\",female\n" +
+                "not-an-email,Bob,MALE\n" +
+                "carl@mail.com,Carl,ROBOT\n" +
+                "\n" +
+                "anna@mail.com,Anna Again,FEMALE\n" +
+                "taken@mail.com,Taken,OTHER\n";
+        given(studentEmailIndex.mightContain(anyString())).willReturn(true);
+        given(studentRepository.selectTakenEmails(anyList()))
+                .willReturn(Set.of("taken@mail.com"));
+
+        // when
+        StudentImportJob job = awaitCompletion(underTest.startImport(file(csv)));
+
+        // then
+        assertThat(job.getStatus()).isEqualTo(StudentImportJob.Status.COMPLETED);
+        assertThat(job.getRowsRead()).isEqualTo(5);
+        assertThat(job.getRowsImported()).isEqualTo(1);
+        assertThat(job.getRowsRejected()).isEqualTo(4);
+        // row numbers are those of the file, the header being row 1
+        assertThat(job.getErrors())
+                .extracting(StudentImportJob.RowError::getRow)
+                .containsExactlyInAnyOrder(3L, 4L, 6L, 7L);
+        assertThat(loaded).containsExactly(new Student("Anna, Jr", "anna@mail.com", Gender.FEMALE));
+    }
+
+    @Test
+    void shouldLookUpEveryEmailWhenTheIndexMissedATakenOne() throws Exception {
+        // given
+        // registered by another instance, the index does not know it yet
+        String csv = "name,email,gender\n" +
+                "Anna,anna@mail.com,FEMALE\n" +
+                "Taken,taken@mail.com,OTHER\n";
+        given(studentEmailIndex.mightContain(anyString())).willReturn(false);
+        given(studentRepository.selectTakenEmails(anyList()))
+                .willReturn(Set.of("taken@mail.com"));
+        AtomicBoolean violated = new AtomicBoolean();
+        underTest.shutdown();
+        underTest = new StudentImportService(
+                studentRepository,
+                students -> {
+                    if (!violated.getAndSet(true)) {
+                        throw new IllegalStateException("duplicate key",
+                                new SQLException("duplicate key value violates unique constraint", "23505"));
+                    }
+                    loaded.addAll(students);
+                },
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                eventPublisher,
+                studentEmailIndex);
+
+        // when
+        StudentImportJob job = awaitCompletion(underTest.startImport(file(csv)));
+
+        // then
+        assertThat(job.getStatus()).isEqualTo(StudentImportJob.Status.COMPLETED);
+        assertThat(job.getRowsImported()).isEqualTo(1);
+        assertThat(job.getErrors())
+                .extracting(StudentImportJob.RowError::getRow)
+                .containsExactly(3L);
+        assertThat(loaded).containsExactly(new Student("Anna", "anna@mail.com", Gender.FEMALE));
+    }
+
+    @Test
+    void shouldFailWhenHeaderIsMissingColumns() throws Exception {
+        // given
+        String csv = "name,email\nAnna,anna@mail.com\n";
+
+        // when
+        StudentImportJob job = awaitCompletion(underTest.startImport(file(csv)));
+
+        // then
+        assertThat(job.getStatus()).isEqualTo(StudentImportJob.Status.FAILED);
+        assertThat(job.getFailure()).contains("name, email and gender");
+        assertThat(loaded).isEmpty();
+    }
+
+    @Test
+    void shouldReturnJobById() throws Exception {
+        // given
+        StudentImportJob job = underTest.startImport(file("name,email,gender\n"));
+
+        // then
+        assertThat(underTest.getJob(job.getId())).isSameAs(job);
+    }
+
+    private static MockMultipartFile file(String content) {
+        return new MockMultipartFile("file", "students.csv", "text/csv",
+                content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static StudentImportJob awaitCompletion(StudentImportJob job) throws InterruptedException {
+        for (int i = 0; i < 100 && !job.isFinished(); i++) {
+            Thread.sleep(50);
+        }
+        return job;
+    }
+}
@@ -0,0 +1,87 @@
+package org.springframework.web.servlet.mvc.method.annotation;
+
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+/**
+ * The connection Spring MVC attaches a returned SseEmitter to, standing in for
+ * a client that stops reading: once stalled, a write blocks until released,
+ * interrupted or not, like a write to a full socket. The emitter keeps its own
+ * locking, which the handler API is package-private for.
+ */
+public class StalledSseConnection implements ResponseBodyEmitter.Handler {
+
+    private final List<Object> written = new ArrayList<>();
+    private volatile CountDownLatch stalled;
+    private volatile boolean completed;
+
+    public static StalledSseConnection attachTo(SseEmitter emitter) throws IOException {
+        StalledSseConnection connection = new StalledSseConnection();
+        emitter.initialize(connection);
+        return connection;
+    }
+
+    public void stall() {
+        stalled = new CountDownLatch(1);
+    }
+
+    public void release() {
+        stalled.countDown();
+    }
+
+    public synchronized List<Object> getWritten() {
+        return new ArrayList<>(written);
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    @Override
+    public void send(Object data, MediaType mediaType) {
+        CountDownLatch latch = stalled;
+        if (latch != null) {
+            boolean interrupted = false;
+            while (latch.getCount() > 0) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            written.add(data);
+        }
+    }
+
+    @Override
+    public void complete() {
+        completed = true;
+    }
+
+    @Override
+    public void completeWithError(Throwable failure) {
+        completed = true;
+    }
+
+    @Override
+    public void onTimeout(Runnable callback) {
+    }
+
+    @Override
+    public void onError(Consumer<Throwable> callback) {
+    }
+
+    @Override
+    public void onCompletion(Runnable callback) {
+    }
+}